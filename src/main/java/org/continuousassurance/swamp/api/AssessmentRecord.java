@@ -2,6 +2,8 @@ package org.continuousassurance.swamp.api;
 
 import org.continuousassurance.swamp.session.handlers.AssessmentRecordHandler;
 import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.ConversionSchema;
+import org.continuousassurance.swamp.session.handlers.PlatformHandler;
 import org.continuousassurance.swamp.session.handlers.PackageHandler;
 import org.continuousassurance.swamp.session.handlers.ToolHandler;
 
@@ -21,6 +23,17 @@ import java.util.Map;
  * on 11/18/14 at  3:06 PM
  */
 public class AssessmentRecord extends SwampThing{
+    public static final ConversionSchema SCHEMA = new ConversionSchema()
+            .identifiers(AssessmentRecordHandler.EXECUTION_RECORD_UUID, AssessmentRecordHandler.ASSESSMENT_RUN_UUID,
+                    AssessmentRecordHandler.ASSESSMENT_RESULT_UUID, AssessmentRecordHandler.PROJECT_UUID,
+                    PackageHandler.PACKAGE_UUID_KEY, AssessmentRecordHandler.PACKAGE_VERSION_UUID,
+                    ToolHandler.TOOL_UUID_KEY, AssessmentRecordHandler.TOOL_VERSION_UUID,
+                    PlatformHandler.PLATFORM_UUID_KEY, AssessmentRecordHandler.PLATFORM_VERSION_UUID)
+            .objects(AssessmentRecordHandler.STATUS_STRING, "package_name", "package_version",
+                    "tool_name", "tool_version", "platform_name", "platform_version")
+            .dates(AssessmentRecordHandler.CREATE_DATE)
+            .integers(AssessmentRecordHandler.WEAKNESS_COUNT);
+
 
 	Project project;
     PackageThing pkg;
@@ -41,6 +54,11 @@ public class AssessmentRecord extends SwampThing{
         return new AssessmentRecord(getSession());
     }
 
+    @Override
+    public ConversionSchema getConversionSchema() {
+        return SCHEMA;
+    }
+
     @Override
     public String getIDKey() {
         return AssessmentRecordHandler.EXECUTION_RECORD_UUID;
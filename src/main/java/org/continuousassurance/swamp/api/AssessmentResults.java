@@ -1,6 +1,7 @@
 package org.continuousassurance.swamp.api;
 
 import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.ConversionSchema;
 import org.continuousassurance.swamp.session.handlers.AssessmentResultHandler;
 
 import java.util.Map;
@@ -10,6 +11,15 @@ import java.util.Map;
  * on 3/4/15 at  12:43 PM
  */
 public class AssessmentResults extends SwampThing {
+    public static final ConversionSchema SCHEMA = new ConversionSchema()
+            .identifiers(AssessmentResultHandler.ASSESSMENT_RESULT_UUID_KEY, AssessmentResultHandler.PROJECT_UUID_KEY)
+            .objects(AssessmentResultHandler.CREATE_USER_KEY, AssessmentResultHandler.UPDATE_USER_KEY,
+                    AssessmentResultHandler.PACKAGE_NAME_KEY, AssessmentResultHandler.PACKAGE_VERSION_KEY,
+                    AssessmentResultHandler.PLATFORM_NAME_KEY, AssessmentResultHandler.PLATFORM_VERSION_KEY,
+                    AssessmentResultHandler.TOOL_NAME_KEY, AssessmentResultHandler.TOOL_VERSION_KEY,
+                    AssessmentResultHandler.WEAKNESS_COUNT_KEY)
+            .dates(AssessmentResultHandler.CREATE_DATE_KEY, AssessmentResultHandler.UPDATE_DATE_KEY);
+
 
 
     public AssessmentResults(Session session, Project parentProject) {
@@ -32,6 +42,11 @@ public class AssessmentResults extends SwampThing {
         this.parentProject = parentProject;
     }
 
+    @Override
+    public ConversionSchema getConversionSchema() {
+        return SCHEMA;
+    }
+
     @Override
     public String getIDKey() {
         return AssessmentResultHandler.ASSESSMENT_RESULT_UUID_KEY;
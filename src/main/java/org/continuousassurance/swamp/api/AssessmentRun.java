@@ -1,6 +1,10 @@
 package org.continuousassurance.swamp.api;
 
 import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.ConversionSchema;
+import org.continuousassurance.swamp.session.handlers.PackageHandler;
+import org.continuousassurance.swamp.session.handlers.ToolHandler;
+import org.continuousassurance.swamp.session.handlers.PlatformHandler;
 import org.continuousassurance.swamp.session.handlers.AssessmentRunHandler;
 
 import java.util.Map;
@@ -19,6 +23,14 @@ import java.util.Map;
  * on 11/18/14 at  3:06 PM
  */
 public class AssessmentRun extends SwampThing{
+    public static final ConversionSchema SCHEMA = new ConversionSchema()
+            .identifiers(AssessmentRunHandler.ASSESSMENT_RUN_UUID, AssessmentRunHandler.PROJECT_UUID,
+                    PackageHandler.PACKAGE_UUID_KEY, AssessmentRunHandler.PACKAGE_VERSION_UUID,
+                    ToolHandler.TOOL_UUID_KEY, AssessmentRunHandler.TOOL_VERSION_UUID,
+                    PlatformHandler.PLATFORM_UUID_KEY, AssessmentRunHandler.PLATFORM_VERSION_UUID)
+            .objects("package_name", "package_version_string", "tool_name", "tool_version_string",
+                    "platform_name", "platform_version_string");
+
     public AssessmentRun(Session session) {
         super(session);
     }
@@ -31,6 +43,11 @@ public class AssessmentRun extends SwampThing{
         return new AssessmentRun(getSession());
     }
 
+    @Override
+    public ConversionSchema getConversionSchema() {
+        return SCHEMA;
+    }
+
     @Override
     public String getIDKey() {
         return AssessmentRunHandler.ASSESSMENT_RUN_UUID;
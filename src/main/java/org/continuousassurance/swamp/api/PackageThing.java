@@ -1,6 +1,7 @@
 package org.continuousassurance.swamp.api;
 
 import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.ConversionSchema;
 import org.continuousassurance.swamp.session.handlers.PackageHandler;
 
 import java.util.List;
@@ -23,6 +24,15 @@ import static edu.uiuc.ncsa.security.core.util.BeanUtils.checkEquals;
  * on 11/18/14 at  3:06 PM
  */
 public class PackageThing extends SwampThing {
+    public static final ConversionSchema SCHEMA = new ConversionSchema()
+            .identifiers(PackageHandler.PACKAGE_UUID_KEY)
+            .objects(PackageHandler.PACKAGE_NAME_KEY, PackageHandler.PACKAGE_DESCRIPTION_KEY,
+                    PackageHandler.PACKAGE_TYPE_KEY, PackageHandler.PACKAGE_TYPE_ID_KEY,
+                    PackageHandler.PACKAGE_SHARING_STATUS_KEY, PackageHandler.EXTERNAL_URI_KEY,
+                    PackageHandler.VERSION_STRINGS)
+            .booleans(PackageHandler.IS_OWNED_KEY)
+            .dates(PackageHandler.CREATE_DATE_KEY, PackageHandler.UPDATE_DATE_KEY);
+
 
     public PackageThing(Session session) {
         super(session);
@@ -42,6 +52,11 @@ public class PackageThing extends SwampThing {
         return new PackageThing(getSession());
     }
 
+    @Override
+    public ConversionSchema getConversionSchema() {
+        return SCHEMA;
+    }
+
     @Override
     public String getIDKey() {
         return PackageHandler.PACKAGE_UUID_KEY;
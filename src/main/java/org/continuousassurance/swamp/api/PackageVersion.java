@@ -1,6 +1,7 @@
 package org.continuousassurance.swamp.api;
 
 import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.ConversionSchema;
 
 import java.util.Date;
 import java.util.Map;
@@ -33,6 +34,15 @@ import static org.continuousassurance.swamp.session.handlers.PackageVersionHandl
  * on 1/13/15 at  1:26 PM
  */
 public class PackageVersion extends SwampThing {
+    public static final ConversionSchema SCHEMA = new ConversionSchema()
+            .identifiers(PACKAGE_VERSION_UUID, PACKAGE_UUID, PLATFORM_UUID)
+            .objects(VERSION_STRING, VERSION_SHARING_STATUS, NOTES,
+                    FILENAME, FILE_UPLOAD_NAME, FILE_UPLOAD_PATH, FILE_UPLOAD_EXTENSION, FILE_UPLOAD_MIME_TYPE,
+                    FILE_UPLOAD_ID, BUILD_CMD, BUILD_DIR, BUILD_OPT, BUILD_FILE, BUILD_SYSTEM, BUILD_TARGET,
+                    CONFIG_CMD, CONFIG_DIR, CONFIG_OPT, PACKAGE_PATH, SOURCE_PATH,
+                    BYTECODE_AUX_CLASS_PATH, BYTECODE_CLASS_PATH, BYTECODE_SOURCE_PATH)
+            .dates(RELEASE_DATE, RETIRE_DATE);
+
     public PackageVersion(Session session) {
         super(session);
     }
@@ -45,6 +55,11 @@ public class PackageVersion extends SwampThing {
         return new PackageVersion(getSession());
     }
 
+    @Override
+    public ConversionSchema getConversionSchema() {
+        return SCHEMA;
+    }
+
     @Override
     public String getIDKey() {
         return PACKAGE_VERSION_UUID;
@@ -1,6 +1,7 @@
 package org.continuousassurance.swamp.api;
 
 import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.ConversionSchema;
 
 import java.util.Date;
 import java.util.List;
@@ -19,6 +20,11 @@ import static org.continuousassurance.swamp.session.handlers.PlatformHandler.*;
  * on 12/10/14 at  10:54 AM
  */
 public class Platform extends SwampThing {
+    public static final ConversionSchema SCHEMA = new ConversionSchema()
+            .identifiers(PLATFORM_UUID_KEY)
+            .objects(NAME_KEY, PLATFORM_SHARING_STATUS_KEY, DESCRIPTION_KEY, VERSION_STRINGS_KEY)
+            .dates(CREATE_DATE_KEY, UPDATE_DATE_KEY);
+
     public Platform(Session session) {
         super(session);
     }
@@ -31,6 +37,11 @@ public class Platform extends SwampThing {
         return new Platform(getSession());
     }
 
+    @Override
+    public ConversionSchema getConversionSchema() {
+        return SCHEMA;
+    }
+
     @Override
     public String getIDKey() {return PLATFORM_UUID_KEY;}
     public String getName(){return getString(NAME_KEY);}
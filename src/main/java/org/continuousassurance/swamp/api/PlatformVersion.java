@@ -1,6 +1,7 @@
 package org.continuousassurance.swamp.api;
 
 import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.ConversionSchema;
 
 import java.util.Map;
 
@@ -14,6 +15,10 @@ public class PlatformVersion extends SwampThing {
     public static final String PLATFORM_VERSION_UUID_KEY = "platform_version_uuid";
     public static final String VERSION_STRING = "version_string";
 
+    public static final ConversionSchema SCHEMA = new ConversionSchema()
+            .identifiers(PLATFORM_VERSION_UUID_KEY, PLATFORM_UUID_KEY)
+            .objects(NAME_KEY, VERSION_STRING);
+
     protected Platform platform;
 
 	public PlatformVersion(Session session) {
@@ -47,6 +52,11 @@ public class PlatformVersion extends SwampThing {
 		return getFullName();
 	}
 	
+    @Override
+    public ConversionSchema getConversionSchema() {
+        return SCHEMA;
+    }
+
     @Override
     public String getIDKey() {
         return PLATFORM_VERSION_UUID_KEY;
@@ -1,6 +1,7 @@
 package org.continuousassurance.swamp.api;
 
 import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.ConversionSchema;
 
 import java.util.Date;
 import java.util.Map;
@@ -24,6 +25,12 @@ import static org.continuousassurance.swamp.session.handlers.UserHandler.USER_UI
  * on 11/18/14 at  3:06 PM
  */
 public class Project extends SwampThing {
+    public static final ConversionSchema SCHEMA = new ConversionSchema()
+            .identifiers(PROJECT_UID_KEY)
+            .objects(FULL_NAME_KEY, SHORT_NAME_KEY, DESCRIPTION_KEY, AFFILIATION_KEY, USER_UID_KEY)
+            .booleans(TRIAL_PROJECT_FLAG_KEY)
+            .dates(CREATE_DATE_KEY, DENIAL_DATE_KEY, DEACTIVATION_DATE_KEY);
+
 
 
     @Override
@@ -31,6 +38,11 @@ public class Project extends SwampThing {
         return new Project(getSession());
     }
 
+    @Override
+    public ConversionSchema getConversionSchema() {
+        return SCHEMA;
+    }
+
     @Override
     public String getIDKey() {
         return PROJECT_UID_KEY;
@@ -6,6 +6,7 @@ import net.sf.json.JSONArray;
 import org.continuousassurance.swamp.session.Session;
 import org.continuousassurance.swamp.session.handlers.PackageVersionHandler;
 import org.continuousassurance.swamp.session.util.ConversionMapImpl;
+import org.continuousassurance.swamp.session.util.ConversionSchema;
 import org.continuousassurance.swamp.session.util.SWAMPIdentifiers;
 
 import java.util.Date;
@@ -139,13 +140,31 @@ public abstract class SwampThing implements Identifiable {
      */
     public ConversionMapImpl getConversionMap() {
         if (conversionMap == null) {
-            conversionMap = new ConversionMapImpl();
+            conversionMap = new ConversionMapImpl(getConversionSchema());
         }
         return conversionMap;
     }
 
+    /**
+     * Sets the conversion map. A map that was not created with {@link #getConversionSchema()} is copied into
+     * one that is, so later changes to the argument are not seen here. Handlers should create the map with the
+     * schema of the object they fill to avoid the copy.
+     *
+     * @param conversionMap
+     */
     public void setConversionMap(ConversionMapImpl conversionMap) {
-        this.conversionMap = conversionMap;
+        this.conversionMap = conversionMap == null ? null : conversionMap.withSchema(getConversionSchema());
+    }
+
+    /**
+     * The attributes this kind of object is known to have, kept compactly in its conversion map. Null, the
+     * default, keeps every attribute in a hash map. Subclasses that are held in memory in large numbers should
+     * return a shared static schema.
+     *
+     * @return
+     */
+    public ConversionSchema getConversionSchema() {
+        return null;
     }
 
     ConversionMapImpl conversionMap;
@@ -2,6 +2,7 @@ package org.continuousassurance.swamp.api;
 
 import net.sf.json.JSONArray;
 import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.ConversionSchema;
 
 import java.util.Date;
 import java.util.List;
@@ -26,6 +27,13 @@ import static org.continuousassurance.swamp.session.handlers.ToolHandler.*;
  * on 12/10/14 at  10:55 AM
  */
 public class Tool extends SwampThing {
+    public static final ConversionSchema SCHEMA = new ConversionSchema()
+            .identifiers(TOOL_UUID_KEY)
+            .objects(NAME_KEY, TOOL_SHARING_STATUS_KEY, POLICY_CODE_KEY, POLICY_KEY, DESCRIPTION_KEY,
+                    CREATE_USER_KEY, PACKAGE_TYPE_NAMES, PLATFORM_NAMES, VERSION_STRINGS_KEY, VIEWER_NAMES_KEY)
+            .booleans(IS_BUILD_NEEDED_KEY, IS_OWNED_KEY, IS_RESTRICTED_KEY)
+            .dates(CREATE_DATE_KEY, UPDATE_DATE_KEY);
+
     public Tool(Session session) {
         super(session);
     }
@@ -39,6 +47,11 @@ public class Tool extends SwampThing {
         return new Tool(getSession());
     }
 
+    @Override
+    public ConversionSchema getConversionSchema() {
+        return SCHEMA;
+    }
+
     @Override
     public String getIDKey() {
         return TOOL_UUID_KEY;
@@ -3,6 +3,7 @@ package org.continuousassurance.swamp.api;
 import java.util.Date;
 
 import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.ConversionSchema;
 
 import java.util.Map;
 
@@ -22,6 +23,12 @@ public class ToolVersion extends SwampThing{
     public static final String TOOL_ARGUMENTS_KEY = "tool_arguments";
     public static final String TOOL_DIRECTORY_KEY = "tool_directory";
 
+    public static final ConversionSchema SCHEMA = new ConversionSchema()
+            .identifiers(TOOL_VERSION_UUID_KEY, TOOL_UUID_KEY)
+            .objects(VERSION_STRING_KEY, NOTES_KEY, TOOL_PATH_KEY, TOOL_EXECUTABLE_KEY, TOOL_ARGUMENTS_KEY,
+                    TOOL_DIRECTORY_KEY)
+            .dates(RELEASE_DATE_KEY, RETIRE_DATE_KEY);
+
     Tool tool;
     
     public ToolVersion(Session session) {
@@ -31,6 +38,11 @@ public class ToolVersion extends SwampThing{
         super(session, map);
     }
 
+    @Override
+    public ConversionSchema getConversionSchema() {
+        return SCHEMA;
+    }
+
     @Override
     public String getIDKey() {
         return TOOL_VERSION_UUID_KEY;
@@ -18,6 +18,7 @@
 
 package org.continuousassurance.swamp.cli;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -27,12 +28,13 @@ import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -68,6 +70,7 @@ import org.continuousassurance.swamp.cli.exceptions.SwampApiWrapperException;
 import org.continuousassurance.swamp.cli.exceptions.SwampApiWrapperExitCodes;
 import org.continuousassurance.swamp.cli.util.AssessmentStatus;
 import org.continuousassurance.swamp.session.HTTPException;
+import org.continuousassurance.swamp.session.metrics.MetricsRegistry;
 import org.continuousassurance.swamp.session.util.Proxy;
 
 import edu.uiuc.ncsa.security.core.exceptions.GeneralException;
@@ -90,6 +93,10 @@ public class Cli {
     protected static final String SC_PLATFORMS = "platforms";
     protected static final String SC_STATUS = "status";
     
+    /* polling intervals of status --watch, in ms. */
+    protected static final long WATCH_MIN_INTERVAL = 5000;
+    protected static final long WATCH_MAX_INTERVAL = 60000;
+    
     protected static final String LINE_SEP = "------------------------------------------------------------------------";
     
     protected static final Logger LOGGER = Logger.getLogger(Cli.class);
@@ -142,6 +149,7 @@ public class Cli {
         System.out.println("For information on the <options> for a <sub-command> execute:");
         System.out.println("\t<program> <sub-command> --help or <program> <sub-command> -H");
         System.out.println(LINE_SEP);
+        System.out.println("For per-endpoint request statistics, add --stats to any <sub-command>");
         System.out.println("For version: <program> --version or <program> -V");
         System.out.println("For help: <program> --help or <program> -H");
         System.out.println(LINE_SEP);
@@ -460,6 +468,14 @@ public class Cli {
                     .desc("Download results for this tool").build());
             download_options.addOption(Option.builder("PL").required(false).hasArg().argName("PLATFORM").longOpt("platform")
                     .desc("Download results for this platform").build());
+            download_options.addOption(Option.builder("PJ").required(false).hasArg().argName("PROJECT").longOpt("project")
+                    .desc("Download results for this project (with --dir)").build());
+            download_options.addOption(Option.builder("DIR").required(false).hasArg().argName("DIRECTORY").longOpt("dir")
+                    .desc("Download every matching result into this directory as <RESULTS_UUID>.xml, skipping files already there").build());
+            download_options.addOption(Option.builder("GZ").required(false).hasArg(false).longOpt("gzip")
+                    .desc("Compress SCARF results with gzip while downloading, adds .gz to file names").build());
+            download_options.addOption(Option.builder("CS").required(false).hasArg(false).longOpt("checksum")
+                    .desc("Write the SHA-256 of each downloaded file into <file>.sha256").build());
         }
 
         if (args.isEmpty() ) {
@@ -505,10 +521,14 @@ public class Cli {
             cred_map.put("package", parsed_options.getOptionValue("PK"));
             cred_map.put("tool", parsed_options.getOptionValue("TL"));
             cred_map.put("platform", parsed_options.getOptionValue("PL"));           
+            cred_map.put("project", parsed_options.getOptionValue("PJ"));
+            cred_map.put("dir", parsed_options.getOptionValue("DIR"));
+            cred_map.put("gzip", parsed_options.hasOption("GZ"));
+            cred_map.put("checksum", parsed_options.hasOption("CS"));
 
-            if (cred_map.get("results-uuid") == null && 
+            if (cred_map.get("results-uuid") == null && cred_map.get("dir") == null &&
                     (cred_map.get("package") == null || cred_map.get("tool") == null)) {
-                throw new CommandLineOptionException("Specify options (--package <package> AND --tool <tool>) OR --results-uuid");
+                throw new CommandLineOptionException("Specify options (--package <package> AND --tool <tool>) OR --results-uuid OR --dir <directory>");
             }
 
             return cred_map;
@@ -534,10 +554,14 @@ public class Cli {
         OptionGroup opt_grp = new OptionGroup();
         opt_grp.setRequired(true);
         opt_grp.addOption(Option.builder("H").required(false).longOpt("help").desc("Shows Help").build());
-        opt_grp.addOption(Option.builder("A").required().hasArg(true).argName("ASSESSMENT_UUID").longOpt("assess-uuid")
-                .desc("UUID of an assessment run").build());
+        opt_grp.addOption(Option.builder("A").required().hasArgs().argName("ASSESSMENT_UUID").longOpt("assess-uuid")
+                .desc("UUIDs of one or more assessment runs").build());
         options.addOption(Option.builder("P").required(false).hasArg(true).argName("PROJECT_UUID").longOpt("project-uuid")
                 .desc("Project UUID of the project. This option is deprecated").build());
+        options.addOption(Option.builder("W").required(false).hasArg(false).longOpt("watch")
+                .desc("Wait until all the assessment runs have finished, printing their status whenever it changes").build());
+        options.addOption(Option.builder("T").required(false).hasArg(true).argName("SECONDS").longOpt("timeout")
+                .desc("With --watch, give up after waiting this many seconds").build());
         options.addOption(Option.builder("Q").required(false).hasArg(false).longOpt("quiet")
                 .desc("Do not print Headers").build());
         options.addOptionGroup(opt_grp);
@@ -563,8 +587,22 @@ public class Cli {
             }
             HashMap<String, Object> cred_map = new HashMap<String, Object>();
             cred_map.put("project-uuid", parsed_options.getOptionValue("project-uuid"));
-            cred_map.put("assess-uuid", parsed_options.getOptionValue("assess-uuid"));
+            cred_map.put("assess-uuid", Arrays.asList(parsed_options.getOptionValues("assess-uuid")));
             cred_map.put("quiet", parsed_options.hasOption("Q"));
+            cred_map.put("watch", parsed_options.hasOption("W"));
+            long timeout = 0;
+            if (parsed_options.hasOption("timeout")) {
+                try {
+                    timeout = Long.parseLong(parsed_options.getOptionValue("timeout").trim());
+                } catch (NumberFormatException e) {
+                    timeout = -1;
+                }
+                if (timeout <= 0) {
+                    throw new CommandLineOptionException("Timeout must be a positive number of seconds: " +
+                            parsed_options.getOptionValue("timeout"));
+                }
+            }
+            cred_map.put("timeout", timeout);
             return cred_map;
         }
     }
@@ -1399,16 +1437,22 @@ public class Cli {
             }
         }
 
+        List<PackageThing> pkgs = new ArrayList<PackageThing>();
+        for(PackageThing pkg : apiWrapper.getPackagesList(project)) {
+            if (pkgType == null ||
+                    pkg.getType().equalsIgnoreCase(pkgType)) {
+                pkgs.add(pkg);
+            }
+        }
+        // One request per package, so fetch them all at once
+        List<List<PackageVersion>> all_pkg_vers = apiWrapper.getPackageVersions(pkgs);
+
         if(quiet){
-            for(PackageThing pkg : apiWrapper.getPackagesList(project)) {
-                if (pkgType == null ||
-                        pkg.getType().equalsIgnoreCase(pkgType)) {
-
-                    for(PackageVersion pkg_ver : apiWrapper.getPackageVersions(pkg)) {
-                        System.out.println(String.format("%-25s %-25s",
-                                pkg_ver.getPackageThing().getName(),
-                                pkg_ver.getVersionString()));
-                    }
+            for(List<PackageVersion> pkg_vers : all_pkg_vers) {
+                for(PackageVersion pkg_ver : pkg_vers) {
+                    System.out.println(String.format("%-25s %-25s",
+                            pkg_ver.getPackageThing().getName(),
+                            pkg_ver.getVersionString()));
                 }
             }
         }else if(verbose) {
@@ -1416,18 +1460,14 @@ public class Cli {
                     "UUID", "Package", "Description","Type", "Version"));
             System.out.println(LINE_SEP);
             
-            for(PackageThing pkg : apiWrapper.getPackagesList(project)) {
-                if (pkgType == null ||
-                        pkg.getType().equalsIgnoreCase(pkgType)) {
-
-                    for(PackageVersion pkg_ver : apiWrapper.getPackageVersions(pkg)) {
-                        System.out.println(String.format("%-37s %-25s %-40s %-25s %-25s", 
-                                pkg_ver.getUUIDString(),
-                                pkg_ver.getPackageThing().getName(),
-                                pkg_ver.getPackageThing().getDescription(),
-                                pkg_ver.getPackageThing().getType(),
-                                pkg_ver.getVersionString()));
-                    }
+            for(List<PackageVersion> pkg_vers : all_pkg_vers) {
+                for(PackageVersion pkg_ver : pkg_vers) {
+                    System.out.println(String.format("%-37s %-25s %-40s %-25s %-25s", 
+                            pkg_ver.getUUIDString(),
+                            pkg_ver.getPackageThing().getName(),
+                            pkg_ver.getPackageThing().getDescription(),
+                            pkg_ver.getPackageThing().getType(),
+                            pkg_ver.getVersionString()));
                 }
             }
         }else {
@@ -1435,17 +1475,13 @@ public class Cli {
                     "Package", "Description","Type", "Version"));
             System.out.println(LINE_SEP);
             
-            for(PackageThing pkg : apiWrapper.getPackagesList(project)) {
-                if (pkgType == null ||
-                        pkg.getType().equalsIgnoreCase(pkgType)) {
-
-                    for(PackageVersion pkg_ver : apiWrapper.getPackageVersions(pkg)) {
-                        System.out.println(String.format("%-25s %-40s %-25s %-25s",
-                                pkg_ver.getPackageThing().getName(),
-                                pkg_ver.getPackageThing().getDescription(),
-                                pkg_ver.getPackageThing().getType(),
-                                pkg_ver.getVersionString()));
-                    }
+            for(List<PackageVersion> pkg_vers : all_pkg_vers) {
+                for(PackageVersion pkg_ver : pkg_vers) {
+                    System.out.println(String.format("%-25s %-40s %-25s %-25s",
+                            pkg_ver.getPackageThing().getName(),
+                            pkg_ver.getPackageThing().getDescription(),
+                            pkg_ver.getPackageThing().getType(),
+                            pkg_ver.getVersionString()));
                 }
             }
         }
@@ -1835,13 +1871,10 @@ public class Cli {
             valid_platforms.add(apiWrapper.getDefaultPlatformVersion(target_pkg.getPackageThing().getType()));
         }
 
-        List<AssessmentRun> assessment_run = new ArrayList<AssessmentRun>();
+        List<AssessmentRun> assessment_run = apiWrapper.runAssessments(target_pkg, 
+                getToolVersions(toolNames), target_project, valid_platforms);
 
-        for (ToolVersion tool_version : getToolVersions(toolNames)) {
-            assessment_run.addAll(apiWrapper.runAssessment(target_pkg, tool_version, target_project, valid_platforms));
-        }
-
-        if (assessment_run.size() > 0) {
+        if (assessment_run != null && assessment_run.size() > 0) {
             if (!quiet) {
                 System.out.println("Assessment UUID");
                 System.out.println(LINE_SEP);
@@ -1866,9 +1899,7 @@ public class Cli {
         if (projectName != null) {
             all_assessments.addAll(apiWrapper.getAllAssessments(apiWrapper.getProjectFromName(projectName).getIdentifierString()));
         }else {
-            for (Project project : apiWrapper.getProjectsList()) {
-                all_assessments.addAll(apiWrapper.getAllAssessments(project.getIdentifierString()));
-            }
+            all_assessments.addAll(apiWrapper.getAllAssessments(apiWrapper.getProjectsList()));
         }
 
         if (verbose) {
@@ -1933,16 +1964,32 @@ public class Cli {
 
     public void resultsHandler(HashMap<String, Object> optMap) throws IOException{
         if (optMap.get("sub-command").equals("download")) {
+            apiWrapper.setScarfChecksums((boolean)optMap.get("checksum"));
+            String filepath = (String)optMap.get("filepath");
+            if (filepath != null && (boolean)optMap.get("gzip") && !filepath.endsWith(".gz")) {
+                filepath += ".gz";
+            }
+
             if ((String)optMap.get("results-uuid") != null) {
                 downloadScarf((String)optMap.get("project-uuid"), 
                         (String)optMap.get("results-uuid"),
-                        (String)optMap.get("filepath"),
+                        filepath,
+                        (boolean)optMap.get("gzip"),
+                        (boolean)optMap.get("quiet"));
+            }else if ((String)optMap.get("dir") != null) {
+                downloadAllScarf((String)optMap.get("project"), 
+                        (String)optMap.get("package"), 
+                        (String)optMap.get("tool"),
+                        (String)optMap.get("platform"),
+                        (String)optMap.get("dir"),
+                        (boolean)optMap.get("gzip"),
                         (boolean)optMap.get("quiet"));
             }else {
                 downloadScarf((String)optMap.get("package"), 
                         (String)optMap.get("tool"),
                         (String)optMap.get("platform"),
-                        (String)optMap.get("filepath"),
+                        filepath,
+                        (boolean)optMap.get("gzip"),
                         (boolean)optMap.get("quiet"));
             }
         }else {
@@ -1958,10 +2005,11 @@ public class Cli {
     public void downloadScarf(String projectUuid, 
             String asssessResultUuid, 
             String filepath, 
+            boolean gzip,
             boolean quiet) throws IOException {
 
         if (filepath == null) {
-            filepath = "./" + asssessResultUuid + ".xml";
+            filepath = "./" + asssessResultUuid + (gzip ? ".xml.gz" : ".xml");
         }
 
         boolean status = false;
@@ -1971,12 +2019,11 @@ public class Cli {
             status =  apiWrapper.getAssessmentResults(asssessResultUuid, filepath);
         }
 
+        if (!status) {
+            throw new GeneralException("No SCARF results for " + asssessResultUuid);
+        }
         if (!quiet) {
-            if (status) {
-                System.out.println("Downloaded SCARF into: " + filepath);
-            }else {
-                System.out.println("Downloaded SCARF for " + asssessResultUuid + " failed" );
-            }
+            System.out.println("Downloaded SCARF into: " + filepath);
         }
     }
 
@@ -1984,9 +2031,12 @@ public class Cli {
             String toolName,
             String platform, 
             String filepath, 
+            boolean gzip,
             boolean quiet) throws IOException {
 
-        List<AssessmentRecord> results = new ArrayList<AssessmentRecord>();
+        List<AssessmentRecord> results = filterAssessmentRecords(
+                apiWrapper.getAllAssessmentRecords(apiWrapper.getProjectsList()),
+                packageName, toolName, platform);
 
         String package_version = null;
         if (packageName.contains(VERSION_SEPERATOR)) {
@@ -2002,33 +2052,6 @@ public class Cli {
             tool_version =  name_version[1];
         }
 
-        for (Project project : apiWrapper.getProjectsList()) {
-            for (AssessmentRecord arecord : apiWrapper.getAllAssessmentRecords(project.getUUIDString())) {                
-
-                if (packageName != null && !packageName.equalsIgnoreCase(arecord.getConversionMap().getString("package_name"))) {
-                    continue;
-                }
-
-                if (package_version != null && !package_version.equalsIgnoreCase(arecord.getConversionMap().getString("package_version"))) {
-                    continue;
-                }
-
-                if (toolName != null &&  !toolName.equalsIgnoreCase(arecord.getConversionMap().getString("tool_name"))) {
-                    continue;
-                }
-
-                if(tool_version != null && !tool_version.equalsIgnoreCase(arecord.getConversionMap().getString("tool_version"))) {
-                    continue;
-                }
-
-                if(platform != null && !platform.equalsIgnoreCase(PlatformVersion.getDisplayString(arecord.getConversionMap().getString("platform_name"),
-                        arecord.getConversionMap().getString("platform_version")))) {
-                    continue;
-                }
-                results.add(arecord);
-            }
-        }
-
         if (results.isEmpty()) {
             throw new ConflictingNamesException(String.format("No assessment records found with " +
                     "package_name: %s, package_version: %s , tool_name: %s, tool_version: %s, platform: %s\n", 
@@ -2042,7 +2065,7 @@ public class Cli {
         }
 
         if (filepath == null) {
-            filepath = "./" + results.get(0).getAssessmentResultUUID() + ".xml";
+            filepath = "./" + results.get(0).getAssessmentResultUUID() + (gzip ? ".xml.gz" : ".xml");
         }
 
         boolean status = apiWrapper.getAssessmentResults(results.get(0).getProjectUUID(), 
@@ -2050,31 +2073,131 @@ public class Cli {
                 filepath); 
 
 
+        if (!status) {
+            throw new GeneralException("No SCARF results for " + results.get(0).getAssessmentResultUUID());
+        }
         if (!quiet) {
-            if (status) {
-                System.out.println("Downloaded SCARF into: " + filepath);
-            }else {
-                System.out.println("Downloading SCARF for " + results.get(0).getAssessmentResultUUID() + " failed" );
+            System.out.println("Downloaded SCARF into: " + filepath);
+        }
+    }
+
+    /**
+     * Keeps the assessment records that match the filters. Package and tool may be
+     * given as name or name::version, any filter may be null.
+     */
+    protected List<AssessmentRecord> filterAssessmentRecords(List<? extends AssessmentRecord> records,
+            String packageName, 
+            String toolName,
+            String platform) {
+
+        String package_version = null;
+        if (packageName != null && packageName.contains(VERSION_SEPERATOR)) {
+            String name_version[] = getNameAndVersion(packageName);
+            packageName = name_version[0];
+            package_version = name_version[1];
+        }
+        
+        String tool_version = null;
+        if (toolName != null && toolName.contains(VERSION_SEPERATOR)) {
+            String name_version[] = getNameAndVersion(toolName);
+            toolName = name_version[0];
+            tool_version =  name_version[1];
+        }
+
+        List<AssessmentRecord> results = new ArrayList<AssessmentRecord>();
+        for (AssessmentRecord arecord : records) {
+
+            if (packageName != null && !packageName.equalsIgnoreCase(arecord.getConversionMap().getString("package_name"))) {
+                continue;
+            }
+
+            if (package_version != null && !package_version.equalsIgnoreCase(arecord.getConversionMap().getString("package_version"))) {
+                continue;
+            }
+
+            if (toolName != null &&  !toolName.equalsIgnoreCase(arecord.getConversionMap().getString("tool_name"))) {
+                continue;
             }
+
+            if(tool_version != null && !tool_version.equalsIgnoreCase(arecord.getConversionMap().getString("tool_version"))) {
+                continue;
+            }
+
+            if(platform != null && !platform.equalsIgnoreCase(PlatformVersion.getDisplayString(arecord.getConversionMap().getString("platform_name"),
+                    arecord.getConversionMap().getString("platform_version")))) {
+                continue;
+            }
+            results.add(arecord);
+        }
+        return results;
+    }
+
+    public void downloadAllScarf(String projectName,
+            String packageName, 
+            String toolName,
+            String platform, 
+            String dirPath, 
+            boolean gzip,
+            boolean quiet) throws IOException {
+
+        List<? extends AssessmentRecord> all_records;
+        if (projectName != null) {
+            all_records = apiWrapper.getAllAssessmentRecords(getProject(projectName).getUUIDString());
+        }else {
+            all_records = apiWrapper.getAllAssessmentRecords(apiWrapper.getProjectsList());
+        }
+
+        List<AssessmentRecord> results = filterAssessmentRecords(all_records, packageName, toolName, platform);
+        if (results.isEmpty()) {
+            throw new ConflictingNamesException(String.format("No assessment records found with " +
+                    "project: %s, package: %s, tool: %s, platform: %s\n", 
+                    projectName, packageName, toolName, platform));
+        }
+
+        Map<String, SwampApiWrapper.DownloadStatus> outcome = apiWrapper.downloadScarfResults(results, new File(dirPath), gzip);
+
+        int failed = 0;
+        for (Map.Entry<String, SwampApiWrapper.DownloadStatus> entry : outcome.entrySet()) {
+            if (entry.getValue() == SwampApiWrapper.DownloadStatus.FAILED) {
+                failed++;
+            }
+            if (!quiet) {
+                System.out.println(String.format("%-37s %s", entry.getKey(), entry.getValue()));
+            }
+        }
+
+        if (!quiet) {
+            System.out.println(String.format("%d results in: %s", outcome.size(), dirPath));
+        }
+        if (failed > 0) {
+            throw new GeneralException(String.format("Downloading SCARF failed for %d of %d results", failed, outcome.size()));
         }
     }
 
+    /**
+     * How dates are shown, one formatter per thread since they are not thread safe.
+     */
+    static final ThreadLocal<SimpleDateFormat> DISPLAY_DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            //return new SimpleDateFormat("MM/dd/yyyy HH:mm");
+            return new SimpleDateFormat("yyyy/MM/dd'T'HH:mm");
+        }
+    };
+
     public String toCurrentTimeZone(Date date) {
         String converted_date = "";
 
         try {
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTime(date);
-
-            TimeZone this_time_zone = Calendar.getInstance().getTimeZone();
+            TimeZone this_time_zone = TimeZone.getDefault();
+            long time = date.getTime();
             if (!this_time_zone.inDaylightTime(date)) {
-                calendar.add(Calendar.MILLISECOND, this_time_zone.getDSTSavings());
+                time += this_time_zone.getDSTSavings();
             }
 
-            //SimpleDateFormat date_format = new SimpleDateFormat("MM/dd/yyyy HH:mm");
-            SimpleDateFormat date_format = new SimpleDateFormat("yyyy/MM/dd'T'HH:mm");
-            date_format.setTimeZone(Calendar.getInstance().getTimeZone());
-            converted_date =  date_format.format(calendar.getTime());
+            SimpleDateFormat date_format = DISPLAY_DATE_FORMAT.get();
+            date_format.setTimeZone(this_time_zone);
+            converted_date =  date_format.format(new Date(time));
         }catch (Exception e){ 
             LOGGER.error(e.getMessage(), e);
             converted_date = date.toString();
@@ -2095,9 +2218,7 @@ public class Cli {
         if (projectName != null) {
             all_results.addAll(apiWrapper.getAllAssessmentRecords(getProject(projectName).getUUIDString()));
         }else {
-            for (Project project : apiWrapper.getProjectsList()) {
-                all_results.addAll(apiWrapper.getAllAssessmentRecords(project.getUUIDString()));
-            }
+            all_results.addAll(apiWrapper.getAllAssessmentRecords(apiWrapper.getProjectsList()));
         }
 
         Collections.sort(all_results, new Comparator<AssessmentRecord>() {
@@ -2174,9 +2295,17 @@ public class Cli {
     }
 
     public void statusHandler(HashMap<String, Object> optMap) {
-        printAssessmentStatus((String)optMap.get("project-uuid"),
-                (String)optMap.get("assess-uuid"),
-                (boolean)optMap.get("quiet"));
+        List<String> assess_uuids = (List<String>)optMap.get("assess-uuid");
+
+        if ((boolean)optMap.get("watch")) {
+            watchAssessmentStatus(assess_uuids, (long)optMap.get("timeout") * 1000, (boolean)optMap.get("quiet"));
+        }else {
+            for (int i = 0; i < assess_uuids.size(); i++) {
+                printAssessmentStatus((String)optMap.get("project-uuid"),
+                        assess_uuids.get(i),
+                        (boolean)optMap.get("quiet") || i > 0);
+            }
+        }
     }
 
     public void printUserInfo(HashMap<String, Object> optMap) {
@@ -2318,15 +2447,7 @@ public class Cli {
         if (projectUuid != null) {
             assessment_record = apiWrapper.getAssessmentRecord(projectUuid, assessmentUuid);
         }else {
-            for (Project project : apiWrapper.getProjectsList()) {
-                for (AssessmentRecord record : apiWrapper.getAllAssessmentRecords(project.getUUIDString())) {
-
-                    if (record.getAssessmentRunUUID().equals(assessmentUuid)) {
-                        assessment_record = record;
-                        break;
-                    }
-                }
-            }
+            assessment_record = apiWrapper.findAssessmentRecord(apiWrapper.getProjectsList(), assessmentUuid);
         }
 
         if (assessment_record != null) {
@@ -2347,6 +2468,104 @@ public class Cli {
         }
     }
 
+    /**
+     * Polls the status of assessment runs until all of them have finished, printing
+     * a line for a run whenever its status changes. Each poll fetches the execution
+     * records of every project involved once. It polls every
+     * {@link #WATCH_MIN_INTERVAL} ms. while any run is being assessed, and backs off
+     * up to {@link #WATCH_MAX_INTERVAL} ms. while all of them are queued or in a
+     * status this version does not know.
+     * <p>
+     * A UUID that is not found on the first poll is an error, as it is for status
+     * without --watch. A run that disappears later (e.g. it was deleted) is reported
+     * and no longer watched, and the same error is raised once the others are done.
+     * 
+     * @param assessmentUuids: assessment UUIDs
+     * @param timeout: ms. to wait at most, 0 to wait as long as it takes
+     * @param quiet: do not print the header
+     */
+    public void watchAssessmentStatus(List<String> assessmentUuids, long timeout, boolean quiet) {
+        Set<String> pending = new LinkedHashSet<String>(assessmentUuids);
+        Map<String, String> last_status = new HashMap<String, String>();
+        List<String> vanished = new ArrayList<String>();
+        long interval = WATCH_MIN_INTERVAL;
+        long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+        boolean first = true;
+
+        if (!quiet) {
+            System.out.println(String.format("%-37s %-15s %-15s %-37s", 
+                    "Assessment UUID", "Status", "Weakness", "Assessments Result UUID"));
+            System.out.println(LINE_SEP);
+        }
+
+        while (true) {
+            Map<String, AssessmentRecord> records = apiWrapper.findAssessmentRecords(apiWrapper.getProjectsList(), pending);
+            boolean changed = false;
+            boolean assessing = false;
+
+            for (Iterator<String> it = pending.iterator(); it.hasNext();) {
+                String assess_uuid = it.next();
+                AssessmentRecord assessment_record = records.get(assess_uuid);
+                if (assessment_record == null) {
+                    if (first) {
+                        throw new InvalidIdentifierException("Invalid Assessment UUID: " + assess_uuid);
+                    }
+                    System.out.println(String.format("%-37s %-15s", assess_uuid, "Not found"));
+                    vanished.add(assess_uuid);
+                    it.remove();
+                    continue;
+                }
+
+                String status = String.valueOf(assessment_record.getStatus());
+                AssessmentStatus assessment_status = AssessmentStatus.translateAssessmentStatus(status);
+                if (!status.equals(last_status.put(assess_uuid, status))) {
+                    changed = true;
+                    System.out.println(String.format("%-37s %-15s %-15d %-37s", 
+                            assess_uuid,
+                            assessment_status,
+                            assessment_record.getWeaknessCount(),
+                            assessment_record.getAssessmentResultUUID() != null ? assessment_record.getAssessmentResultUUID() : ""));
+                    if (assessment_status == AssessmentStatus.UNKNOWN) {
+                        LOGGER.warn("Unrecognized status '" + status + "' of assessment run " + assess_uuid 
+                                + ", polling it less often");
+                    }
+                }
+
+                if (assessment_status == AssessmentStatus.SUCCESS || assessment_status == AssessmentStatus.FAILED) {
+                    it.remove();
+                }else if (assessment_status != AssessmentStatus.UNKNOWN && !AssessmentStatus.isQueued(status)) {
+                    assessing = true;
+                }
+            }
+            first = false;
+
+            if (pending.isEmpty()) {
+                break;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new GeneralException(String.format("Timed out waiting for %d assessment runs: %s", 
+                        pending.size(), pending));
+            }
+            if (changed || assessing) {
+                interval = WATCH_MIN_INTERVAL;
+            }else {
+                interval = Math.min(interval * 2, WATCH_MAX_INTERVAL);
+            }
+            try {
+                Thread.sleep(Math.min(interval, remaining));
+            }catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        if (!vanished.isEmpty()) {
+            throw new InvalidIdentifierException("Assessment runs no longer found: " + vanished);
+        }
+    }
+
     public static void main(String[] args) throws Exception {
 
         //org.apache.log4j.BasicConfigurator.configure(new NullAppender());
@@ -2361,14 +2580,26 @@ public class Cli {
             return;
         }
 
-        Cli cli = new Cli();
+        final Cli cli = new Cli();
         ArrayList<String> cli_args = new ArrayList<String>(Arrays.asList(args));
         String command = cli_args.remove(0);
 
+        if (cli_args.remove("--stats")) {
+            // A hook, since every way out of here ends in System.exit
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    System.err.print(MetricsRegistry.getInstance().getReport());
+                    System.err.print(cli.apiWrapper.getCacheStats());
+                }
+            });
+        }
+
         try {
             HashMap<String, Object> opt_map = cli.processCliArgs(command, cli_args);
             if (opt_map != null){
                 cli.executeCommands(command, opt_map);
+                cli.apiWrapper.saveHttpCache();
             }
         } catch(SwampApiWrapperException e){
             LOGGER.error(e.getMessage());
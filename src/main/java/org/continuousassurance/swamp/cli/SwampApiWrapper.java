@@ -22,7 +22,7 @@
 
 package org.continuousassurance.swamp.cli;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -38,16 +38,26 @@ import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.http.HttpException;
 import org.apache.http.client.CookieStore;
@@ -63,6 +73,7 @@ import org.continuousassurance.swamp.api.Project;
 import org.continuousassurance.swamp.api.Tool;
 import org.continuousassurance.swamp.api.ToolVersion;
 import org.continuousassurance.swamp.api.User;
+import org.continuousassurance.swamp.cli.exceptions.AssessmentCreationException;
 import org.continuousassurance.swamp.cli.exceptions.IncompatibleAssessmentTupleException;
 import org.continuousassurance.swamp.cli.exceptions.InvalidIdentifierException;
 import org.continuousassurance.swamp.cli.exceptions.InvalidNameException;
@@ -71,13 +82,23 @@ import org.continuousassurance.swamp.cli.exceptions.SessionExpiredException;
 import org.continuousassurance.swamp.cli.exceptions.SessionRestoreException;
 import org.continuousassurance.swamp.cli.exceptions.SessionSaveException;
 import org.continuousassurance.swamp.cli.exceptions.ToolPermissionException;
+import org.continuousassurance.swamp.cli.util.AssessmentLedger;
+import org.continuousassurance.swamp.cli.util.CatalogCache;
+import org.continuousassurance.swamp.cli.util.FanOut;
+import org.continuousassurance.swamp.cli.util.PermissionCache;
+import org.continuousassurance.swamp.cli.util.PersistentHttpCache;
+import org.continuousassurance.swamp.cli.util.ProjectCache;
+import org.continuousassurance.swamp.cli.util.UuidIndex;
 import org.continuousassurance.swamp.session.HTTPException;
+import org.continuousassurance.swamp.session.MyResponse;
+import org.continuousassurance.swamp.session.SWAMPHttpClient;
 import org.continuousassurance.swamp.session.Session;
 import org.continuousassurance.swamp.session.handlers.HandlerFactory;
 import org.continuousassurance.swamp.session.handlers.PackageHandler;
 import org.continuousassurance.swamp.session.util.ConversionMapImpl;
 import org.continuousassurance.swamp.session.util.Proxy;
 import org.continuousassurance.swamp.session.util.SWAMPConfigurationLoader;
+import org.continuousassurance.swamp.session.util.SystemProperties;
 import org.continuousassurance.swamp.util.HandlerFactoryUtil;
 
 import edu.uiuc.ncsa.security.util.ssl.SSLConfiguration;
@@ -256,20 +277,6 @@ public class SwampApiWrapper {
 	        return 1;
 	    }
 	}
-	private static boolean stringsAreEqual(String a, String b) {
-		// Utility method for comparing strings, either or both of which may be null
-		if (a == b) {
-			// Due to string interning this will often be true for a.equals(b)
-			return true;
-		}
-		if (a == null || b == null) {
-			return false;
-		}
-		return a.equals(b);
-	}
-	private String cachedPkgProjectID;
-	private String cachedPkgVersionProjectID;
-	private String cachedToolProjectID;
 	private String csaAddress;
 	private final String csaCookies;
 	private final String csaSessionObject;
@@ -278,11 +285,11 @@ public class SwampApiWrapper {
 	private String hostHeader;
 	private String originHeader;
 	
-	private Map<String, PackageThing> packageMap;
+	private ProjectCache<Map<String, PackageThing>> packageCache;
 
 	private Map<String, Integer> packageTypeMap;
 
-	private Map<String, PackageVersion> packageVersionMap;
+	private ProjectCache<Map<String, PackageVersion>> packageVersionCache;
 
 	private Map<String, PlatformVersion> platformMap;
 
@@ -294,7 +301,30 @@ public class SwampApiWrapper {
 
 	private final String swampDirPath;
 
-	private Map<String, Tool> toolMap;
+	private ProjectCache<Map<String, Tool>> toolCache;
+
+	private CatalogCache catalogCache;
+
+	private UuidIndex uuidIndex;
+
+	private AssessmentLedger assessmentLedger;
+
+	private PermissionCache permissionCache;
+
+	private PersistentHttpCache httpCache;
+
+	private boolean scarfChecksums = false;
+
+	/*
+	 * Names of the catalogs kept in the CatalogCache. Package versions share the
+	 * "package" prefix with packages so both can be invalidated at once.
+	 */
+	protected static final String PROJECTS_CATALOG = "projects";
+	protected static final String TOOLS_CATALOG = "tools";
+	protected static final String PLATFORM_VERSIONS_CATALOG = "platform-versions";
+	protected static final String PACKAGES_CATALOG = "packages";
+	protected static final String PACKAGE_VERSIONS_CATALOG = "package-versions";
+	protected static final String PACKAGES_CATALOG_PREFIX = "package";
 
 	/**
      * Main constructor
@@ -305,9 +335,9 @@ public class SwampApiWrapper {
         csaSessionObject  = swampDirPath + File.separator + "csa_session_object.ser";
         csaCookies = swampDirPath + File.separator + "csa_session_cookies.ser";
 
-        cachedPkgProjectID = "";
-        cachedPkgVersionProjectID = "";
-        cachedToolProjectID = "";
+        packageCache = new ProjectCache<Map<String, PackageThing>>("packages");
+        packageVersionCache = new ProjectCache<Map<String, PackageVersion>>("package versions");
+        toolCache = new ProjectCache<Map<String, Tool>>("tools");
 
         sslConfig = new SSLConfiguration();
         sslConfig.setTlsVersion("TLSv1.2");
@@ -351,6 +381,8 @@ public class SwampApiWrapper {
 	 *  
 	 */
 	public boolean deleteAssessment(AssessmentRun arun) {
+		getUuidIndex().remove(UuidIndex.Type.ASSESSMENT_RUN, arun.getUUIDString());
+		getUuidIndex().save();
 		return handlerFactory.getAssessmentHandler().delete(arun);
 	}
 
@@ -396,7 +428,9 @@ public class SwampApiWrapper {
 	public boolean deletePackage(PackageThing pkg) throws InvalidIdentifierException {
 		boolean ret_val = handlerFactory.getPackageHandler().deletePackage(pkg);
 		if(ret_val) {
-			packageVersionMap = null;
+			packageCache.clear();
+			packageVersionCache.clear();
+			getCatalogCache().invalidate(PACKAGES_CATALOG_PREFIX);
 		}
 		return ret_val;
 	}
@@ -433,8 +467,10 @@ public class SwampApiWrapper {
 	public boolean deletePackageVersion(PackageVersion pkgVer) throws InvalidIdentifierException {
 		boolean ret_val = handlerFactory.getPackageVersionHandler().deletePackageVersion(pkgVer);
 		if(ret_val) {
-			//packageVersionMap = null;
-			packageVersionMap.remove(pkgVer.getIdentifierString());
+			for (Map<String, PackageVersion> package_version_map : packageVersionCache.values()) {
+				package_version_map.remove(pkgVer.getIdentifierString());
+			}
+			getCatalogCache().invalidate(PACKAGE_VERSIONS_CATALOG);
 		}
 		return ret_val;
 	}
@@ -525,7 +561,10 @@ public class SwampApiWrapper {
 	 */
 	public List<? extends AssessmentRecord> getAllAssessmentRecords(String projectUuid) {
 		Project project = getProject(projectUuid);
-		return handlerFactory.getassessmentRecordHandler().getExecutionRecords(project);
+		List<? extends AssessmentRecord> records = handlerFactory.getassessmentRecordHandler().getExecutionRecords(project);
+		indexAssessmentRecords(project, records);
+		getUuidIndex().save();
+		return records;
 	}
 
 	/**
@@ -539,7 +578,12 @@ public class SwampApiWrapper {
 	 */
 	protected List<? extends AssessmentResults> getAllAssessmentResults(String projectUuid) {
 		Project project = getProject(projectUuid);
-		return handlerFactory.getAssessmentResultHandler().getAll(project);
+		List<? extends AssessmentResults> all_results = handlerFactory.getAssessmentResultHandler().getAll(project);
+		for (AssessmentResults results : all_results) {
+			getUuidIndex().put(UuidIndex.Type.ASSESSMENT_RESULT, results.getUUIDString(), project.getUUIDString());
+		}
+		getUuidIndex().save();
+		return all_results;
 	}
 
 	/**
@@ -551,7 +595,259 @@ public class SwampApiWrapper {
 	 */
 	public List<AssessmentRun> getAllAssessments(String projectUuid) {
 		Project project = getProject(projectUuid);
-		return (List<AssessmentRun>) handlerFactory.getAssessmentHandler().getAllAssessments(project);
+		List<AssessmentRun> assessments = (List<AssessmentRun>) handlerFactory.getAssessmentHandler().getAllAssessments(project);
+		indexAssessments(project, assessments);
+		getUuidIndex().save();
+		return assessments;
+	}
+
+	/**
+	 * Get the assessment execution records of several projects, fetching
+	 * up to {@link FanOut#CONCURRENCY_PROPERTY} projects at a time
+	 *
+	 *  @param projects: projects to scan
+	 *
+	 *  @return list of assessment record objects, grouped in the order of the projects
+	 */
+	public List<AssessmentRecord> getAllAssessmentRecords(List<Project> projects) {
+		List<AssessmentRecord> all_records = new ArrayList<AssessmentRecord>();
+		for (List<? extends AssessmentRecord> records : getFanOut().map(projects,
+				new FanOut.Task<Project, List<? extends AssessmentRecord>>() {
+			@Override
+			public List<? extends AssessmentRecord> call(Project project) {
+				List<? extends AssessmentRecord> records = handlerFactory.getassessmentRecordHandler().getExecutionRecords(project);
+				indexAssessmentRecords(project, records);
+				return records;
+			}
+		})) {
+			all_records.addAll(records);
+		}
+		getUuidIndex().save();
+		return all_records;
+	}
+
+	/**
+	 * Gets the assessments of several projects, fetching up to
+	 * {@link FanOut#CONCURRENCY_PROPERTY} projects at a time
+	 *
+	 *  @param projects: projects to scan
+	 *
+	 *  @return list of assessment objects, grouped in the order of the projects
+	 */
+	public List<AssessmentRun> getAllAssessments(List<Project> projects) {
+		List<AssessmentRun> all_assessments = new ArrayList<AssessmentRun>();
+		for (List<AssessmentRun> assessments : getFanOut().map(projects,
+				new FanOut.Task<Project, List<AssessmentRun>>() {
+			@Override
+			public List<AssessmentRun> call(Project project) {
+				List<AssessmentRun> assessments = (List<AssessmentRun>) handlerFactory.getAssessmentHandler().getAllAssessments(project);
+				indexAssessments(project, assessments);
+				return assessments;
+			}
+		})) {
+			all_assessments.addAll(assessments);
+		}
+		getUuidIndex().save();
+		return all_assessments;
+	}
+
+	/**
+	 * Finds the execution record of an assessment run in any of several projects.
+	 * The project recorded in the {@link UuidIndex} is tried first. Otherwise
+	 * projects are searched concurrently; once the record turns up, projects not
+	 * yet fetched are skipped.
+	 *
+	 *  @param projects: projects to search
+	 *  @param assessmentUuid: assessment UUID
+	 *
+	 *  @return assessment execution record from the first matching project, or null
+	 */
+	public AssessmentRecord findAssessmentRecord(List<Project> projects, final String assessmentUuid) {
+		Project indexed = getIndexedProject(projects, UuidIndex.Type.ASSESSMENT_RUN, assessmentUuid);
+		if (indexed != null) {
+			for (AssessmentRecord assessment_record : getAllAssessmentRecords(indexed.getUUIDString())) {
+				if (assessment_record.getAssessmentRunUUID().equals(assessmentUuid)) {
+					return assessment_record;
+				}
+			}
+			getUuidIndex().remove(UuidIndex.Type.ASSESSMENT_RUN, assessmentUuid);
+		}
+
+		List<Project> others = projects;
+		if (indexed != null) {
+			// already fetched above
+			others = new ArrayList<Project>(projects);
+			others.remove(indexed);
+		}
+		final AtomicBoolean found = new AtomicBoolean(false);
+		for (AssessmentRecord assessment_record : getFanOut().map(others,
+				new FanOut.Task<Project, AssessmentRecord>() {
+			@Override
+			public AssessmentRecord call(Project project) {
+				if (found.get()) {
+					return null;
+				}
+				List<? extends AssessmentRecord> records = handlerFactory.getassessmentRecordHandler().getExecutionRecords(project);
+				indexAssessmentRecords(project, records);
+				for (AssessmentRecord assessment_record : records) {
+					if (assessment_record.getAssessmentRunUUID().equals(assessmentUuid)) {
+						found.set(true);
+						return assessment_record;
+					}
+				}
+				return null;
+			}
+		})) {
+			if (assessment_record != null) {
+				getUuidIndex().save();
+				return assessment_record;
+			}
+		}
+		getUuidIndex().save();
+		return null;
+	}
+
+	/**
+	 * Finds the execution records of several assessment runs, fetching the
+	 * records of each project at most once. Projects recorded in the
+	 * {@link UuidIndex} or the ledger are fetched first, and the others only
+	 * if some of the runs were not found there.
+	 *
+	 *  @param projects: projects to search
+	 *  @param assessmentUuids: assessment UUIDs
+	 *
+	 *  @return hash-map of assessment UUID, execution record, for the runs that were found
+	 */
+	public Map<String, AssessmentRecord> findAssessmentRecords(List<Project> projects, Collection<String> assessmentUuids) {
+		Set<String> wanted = new HashSet<String>(assessmentUuids);
+		Map<String, Project> indexed = new LinkedHashMap<String, Project>();
+		for (String uuid : wanted) {
+			Project project = getIndexedProject(projects, UuidIndex.Type.ASSESSMENT_RUN, uuid);
+			if (project != null) {
+				indexed.put(project.getUUIDString(), project);
+			}
+		}
+
+		Map<String, AssessmentRecord> found = collectAssessmentRecords(new ArrayList<Project>(indexed.values()), wanted);
+		if (found.size() < wanted.size()) {
+			List<Project> others = new ArrayList<Project>();
+			for (Project project : projects) {
+				if (!indexed.containsKey(project.getUUIDString())) {
+					others.add(project);
+				}
+			}
+			for (Map.Entry<String, AssessmentRecord> entry : collectAssessmentRecords(others, wanted).entrySet()) {
+				if (!found.containsKey(entry.getKey())) {
+					found.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		getUuidIndex().save();
+		return found;
+	}
+
+	/**
+	 * Fetch the execution records of the projects concurrently and keep the
+	 * first one of each wanted assessment run
+	 *
+	 *  @param projects: projects to fetch
+	 *  @param wanted: assessment UUIDs
+	 *
+	 *  @return hash-map of assessment UUID, execution record
+	 */
+	protected Map<String, AssessmentRecord> collectAssessmentRecords(List<Project> projects, final Set<String> wanted) {
+		Map<String, AssessmentRecord> found = new HashMap<String, AssessmentRecord>();
+		for (List<AssessmentRecord> records : getFanOut().map(projects,
+				new FanOut.Task<Project, List<AssessmentRecord>>() {
+			@Override
+			public List<AssessmentRecord> call(Project project) {
+				List<? extends AssessmentRecord> records = handlerFactory.getassessmentRecordHandler().getExecutionRecords(project);
+				indexAssessmentRecords(project, records);
+				List<AssessmentRecord> matches = new ArrayList<AssessmentRecord>();
+				for (AssessmentRecord assessment_record : records) {
+					if (wanted.contains(assessment_record.getAssessmentRunUUID())) {
+						matches.add(assessment_record);
+					}
+				}
+				return matches;
+			}
+		})) {
+			for (AssessmentRecord assessment_record : records) {
+				if (!found.containsKey(assessment_record.getAssessmentRunUUID())) {
+					found.put(assessment_record.getAssessmentRunUUID(), assessment_record);
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Index the assessment runs and results of a project's execution records
+	 *
+	 *  @param project: project the records were fetched from
+	 *  @param records: assessment execution records
+	 */
+	protected void indexAssessmentRecords(Project project, List<? extends AssessmentRecord> records) {
+		UuidIndex index = getUuidIndex();
+		for (AssessmentRecord assessment_record : records) {
+			index.put(UuidIndex.Type.ASSESSMENT_RUN, assessment_record.getAssessmentRunUUID(), project.getUUIDString());
+			index.put(UuidIndex.Type.ASSESSMENT_RESULT, assessment_record.getAssessmentResultUUID(), project.getUUIDString());
+		}
+	}
+
+	/**
+	 * Index the assessment runs of a project
+	 *
+	 *  @param project: project the assessments belong to
+	 *  @param assessments: assessment run objects
+	 */
+	protected void indexAssessments(Project project, List<? extends AssessmentRun> assessments) {
+		UuidIndex index = getUuidIndex();
+		for (AssessmentRun arun : assessments) {
+			index.put(UuidIndex.Type.ASSESSMENT_RUN, arun.getUUIDString(), project.getUUIDString());
+		}
+	}
+
+	/**
+	 * Record submitted assessment runs in the ledger and the UUID index
+	 *
+	 *  @param submission: one entry per assessment run
+	 */
+	protected void recordSubmission(List<AssessmentLedger.Entry> submission) {
+		getAssessmentLedger().append(submission);
+		for (AssessmentLedger.Entry entry : submission) {
+			getUuidIndex().put(UuidIndex.Type.ASSESSMENT_RUN, entry.getRunUuid(), entry.getProjectUuid());
+		}
+		getUuidIndex().save();
+	}
+
+	/**
+	 * Get the project an entity was indexed under, if it is one of the given projects.
+	 * Assessment runs missing from the index are looked up in the ledger of
+	 * submitted runs.
+	 *
+	 *  @param projects: projects to choose from
+	 *  @param type: entity type
+	 *  @param uuid: entity UUID
+	 *
+	 *  @return project object, or null if the entity is not indexed
+	 */
+	protected Project getIndexedProject(List<Project> projects, UuidIndex.Type type, String uuid) {
+		String project_uuid = getUuidIndex().getProjectUuid(type, uuid);
+		if (project_uuid == null && type == UuidIndex.Type.ASSESSMENT_RUN) {
+			AssessmentLedger.Entry entry = getAssessmentLedger().get(uuid);
+			if (entry != null) {
+				project_uuid = entry.getProjectUuid();
+			}
+		}
+		if (project_uuid != null) {
+			for (Project project : projects) {
+				if (project_uuid.equals(project.getUUIDString())) {
+					return project;
+				}
+			}
+		}
+		return null;
 	}
 
 	/**
@@ -560,14 +856,7 @@ public class SwampApiWrapper {
 	 *  @return hash-map of package-uuid, package object
 	 */
 	protected Map<String, PackageThing> getAllPackages() {
-		if (packageMap == null) {
-			packageMap = new HashMap<String, PackageThing>();
-			
-			for (PackageThing pkg : handlerFactory.getPackageHandler().getAll()){
-				packageMap.put(pkg.getUUIDString(), pkg);
-			}
-		}
-		return packageMap;
+		return getAllPackages(null);
 	}
 
 	/**
@@ -578,20 +867,26 @@ public class SwampApiWrapper {
 	 *  @return hash-map of package-uuid, package object
 	 */
 	protected Map<String, PackageThing> getAllPackages(String projectUuid) {
-		if ((packageMap == null) || (!stringsAreEqual(cachedPkgProjectID, projectUuid))) {
-			cachedPkgProjectID = projectUuid;
-			packageMap = new HashMap<String, PackageThing>();
+		Map<String, PackageThing> package_map = packageCache.get(projectUuid);
+		if (package_map != null) {
+			return package_map;
+		}
+		package_map = getCatalogCache().get(CatalogCache.key(PACKAGES_CATALOG, projectUuid));
+		if (package_map == null) {
+			package_map = new HashMap<String, PackageThing>();
 			if (projectUuid == null) {
 				for (PackageThing pkg : handlerFactory.getPackageHandler().getAll()){
-					packageMap.put(pkg.getUUIDString(), pkg);
+					package_map.put(pkg.getUUIDString(), pkg);
 				}
 			}else {
 				for (PackageThing pkg : handlerFactory.getPackageHandler().getAll(getProject(projectUuid))){
-					packageMap.put(pkg.getUUIDString(), pkg);
+					package_map.put(pkg.getUUIDString(), pkg);
 				}
 			}
+			getCatalogCache().put(CatalogCache.key(PACKAGES_CATALOG, projectUuid), package_map);
 		}
-		return packageMap;
+		packageCache.put(projectUuid, package_map);
+		return package_map;
 	}
 
 	/**
@@ -600,16 +895,7 @@ public class SwampApiWrapper {
 	 *  @return hash-map of package-version-uuid, package version object
 	 */
 	protected Map<String, PackageVersion> getAllPackageVersions() {
-		if (packageVersionMap == null) {
-			packageVersionMap = new HashMap<String, PackageVersion>();
-			
-			for (PackageThing pkg : handlerFactory.getPackageHandler().getAll()){
-				for (PackageVersion pkg_ver : handlerFactory.getPackageVersionHandler().getAll(pkg)) {
-					packageVersionMap.put(pkg_ver.getUUIDString(), pkg_ver);
-				}
-			}
-		}
-		return packageVersionMap;
+		return getAllPackageVersions(null);
 	}
 
 	/**
@@ -619,24 +905,23 @@ public class SwampApiWrapper {
 	 *  @return hash-map of package-version-uuid, package version object
 	 */
 	protected Map<String, PackageVersion> getAllPackageVersions(String projectUuid) {
-		if ((packageVersionMap == null) || (!stringsAreEqual(cachedPkgVersionProjectID, projectUuid))) {
-			cachedPkgVersionProjectID = projectUuid;
-			packageVersionMap = new HashMap<String, PackageVersion>();
-			if (projectUuid == null) {
-				for (PackageThing pkg : handlerFactory.getPackageHandler().getAll()){
-					for (PackageVersion pkg_ver : handlerFactory.getPackageVersionHandler().getAll(pkg)) {
-						packageVersionMap.put(pkg_ver.getUUIDString(), pkg_ver);
-					}
-				}
-			}else {
-				for (PackageThing pkg : handlerFactory.getPackageHandler().getAll(getProject(projectUuid))){
-					for (PackageVersion pkg_ver : handlerFactory.getPackageVersionHandler().getAll(pkg)) {
-						packageVersionMap.put(pkg_ver.getUUIDString(), pkg_ver);
-					}
+		Map<String, PackageVersion> package_version_map = packageVersionCache.get(projectUuid);
+		if (package_version_map != null) {
+			return package_version_map;
+		}
+		package_version_map = getCatalogCache().get(CatalogCache.key(PACKAGE_VERSIONS_CATALOG, projectUuid));
+		if (package_version_map == null) {
+			package_version_map = new HashMap<String, PackageVersion>();
+			List<PackageThing> packages = new ArrayList<PackageThing>(getAllPackages(projectUuid).values());
+			for (List<PackageVersion> package_versions : getPackageVersions(packages)) {
+				for (PackageVersion pkg_ver : package_versions) {
+					package_version_map.put(pkg_ver.getUUIDString(), pkg_ver);
 				}
 			}
+			getCatalogCache().put(CatalogCache.key(PACKAGE_VERSIONS_CATALOG, projectUuid), package_version_map);
 		}
-		return packageVersionMap;
+		packageVersionCache.put(projectUuid, package_version_map);
+		return package_version_map;
 	}
 
 	/**
@@ -659,12 +944,24 @@ public class SwampApiWrapper {
 	 *  @return hash-map of platform version UUID, platform version object
 	 */
 	public Map<String, PlatformVersion> getAllPlatformVersions() {
+		if (platformMap == null) {
+			platformMap = getCatalogCache().get(PLATFORM_VERSIONS_CATALOG);
+		}
 		if (platformMap == null) {
 			platformMap = new HashMap<String, PlatformVersion>();
-			for (Platform platform : handlerFactory.getPlatformHandler().getAll()) {
-				for (PlatformVersion platform_version : handlerFactory.getPlatformVersionHandler().getAll(platform) )
+			List<Platform> platforms = new ArrayList<Platform>(handlerFactory.getPlatformHandler().getAll());
+			List<List<PlatformVersion>> all_versions = getFanOut().map(platforms,
+					new FanOut.Task<Platform, List<PlatformVersion>>() {
+				@Override
+				public List<PlatformVersion> call(Platform platform) {
+					return new ArrayList<PlatformVersion>(handlerFactory.getPlatformVersionHandler().getAll(platform));
+				}
+			});
+			for (List<PlatformVersion> platform_versions : all_versions) {
+				for (PlatformVersion platform_version : platform_versions)
 					platformMap.put(platform_version.getIdentifierString(), platform_version);
 			}
+			getCatalogCache().put(PLATFORM_VERSIONS_CATALOG, platformMap);
 		}
 		return platformMap;
 	}
@@ -692,11 +989,15 @@ public class SwampApiWrapper {
 	 * @return hash-map of (project name, project object)
 	 */
 	protected Map<String, Project> getAllProjects() {
+		if (projectMap == null) {
+			projectMap = getCatalogCache().get(PROJECTS_CATALOG);
+		}
 		if (projectMap == null) {
 			projectMap = new HashMap<String, Project>();
 			for (Project proj : handlerFactory.getProjectHandler().getAll()) {
 				projectMap.put(proj.getIdentifierString(), proj);
 			}
+			getCatalogCache().put(PROJECTS_CATALOG, projectMap);
 		}
 		return projectMap;
 	}
@@ -710,12 +1011,16 @@ public class SwampApiWrapper {
 	 */
 	protected Map<String, Tool> getAllTools(String projectUuid) throws InvalidIdentifierException {
 
-		if ((toolMap == null) || (!stringsAreEqual(cachedToolProjectID, projectUuid))) {
-			cachedToolProjectID = projectUuid;
-			toolMap = new HashMap<String, Tool>();
+		Map<String, Tool> tool_map = toolCache.get(projectUuid);
+		if (tool_map != null) {
+			return tool_map;
+		}
+		tool_map = getCatalogCache().get(CatalogCache.key(TOOLS_CATALOG, projectUuid));
+		if (tool_map == null) {
+			tool_map = new HashMap<String, Tool>();
 			for (Tool tool : handlerFactory.getToolHandler().getAll()) {
 				//if (tool.getPolicyCode() == null){    //FIXME: This is temporary
-					toolMap.put(tool.getIdentifierString(), tool);
+					tool_map.put(tool.getIdentifierString(), tool);
 				//}
 			}
 
@@ -724,24 +1029,138 @@ public class SwampApiWrapper {
 
 				for (Tool tool : handlerFactory.getToolHandler().getAll(proj)) {
 					//if (tool.getPolicyCode() == null){    //FIXME: This is temporary
-						toolMap.put(tool.getIdentifierString(), tool);
+						tool_map.put(tool.getIdentifierString(), tool);
 					//}
 				}
 			}
+			getCatalogCache().put(CatalogCache.key(TOOLS_CATALOG, projectUuid), tool_map);
+		}
+		toolCache.put(projectUuid, tool_map);
+		return tool_map;
+	}
+
+	/**
+	 * Get a FanOut for making many similar calls to SWAMP at once
+	 * <p>
+	 * The number of calls in flight is set by the system property
+	 * {@value FanOut#CONCURRENCY_PROPERTY} and defaults to the number of
+	 * connections allowed per host.
+	 * 
+	 * @return fan out on the session's executor
+	 */
+	protected FanOut getFanOut() {
+		SWAMPHttpClient client = handlerFactory.getCSASession().getClient();
+		int concurrency = SystemProperties.getInt(FanOut.CONCURRENCY_PROPERTY, client.getMaxConnectionsPerRoute());
+		return new FanOut(client.getExecutor(), concurrency);
+	}
+
+	/**
+	 * Get the hit/miss counts of the per-project caches, one line each
+	 * 
+	 * @return cache statistics
+	 */
+	public String getCacheStats() {
+		return packageCache + "\n" + packageVersionCache + "\n" + toolCache + "\n";
+	}
+
+	/**
+	 * Get the on-disk cache of catalogs for the current session
+	 * <p>
+	 * Catalogs (projects, tools, platforms, packages) are kept in the SWAMP
+	 * directory between invocations, see {@link CatalogCache}.
+	 * 
+	 * @return catalog cache
+	 */
+	protected synchronized CatalogCache getCatalogCache() {
+		if (catalogCache == null || catalogCache.getSession() != handlerFactory.getCSASession()) {
+			catalogCache = new CatalogCache(new File(swampDirPath), handlerFactory.getCSASession());
+		}
+		return catalogCache;
+	}
+
+	/**
+	 * Get the index of which project each assessment run and result belongs to
+	 * <p>
+	 * Filled from every listing and submission and kept in the SWAMP directory,
+	 * see {@link UuidIndex}. Like the other per-session caches it is first used
+	 * from fan-out tasks, hence the getters are synchronized.
+	 * 
+	 * @return UUID index
+	 */
+	protected synchronized UuidIndex getUuidIndex() {
+		if (uuidIndex == null || uuidIndex.getSession() != handlerFactory.getCSASession()) {
+			uuidIndex = new UuidIndex(new File(swampDirPath), handlerFactory.getCSASession());
+		}
+		return uuidIndex;
+	}
+
+	/**
+	 * Get the cache of GET responses for the current session, installing it
+	 * in the session's client
+	 * <p>
+	 * Kept in the SWAMP directory between invocations, see {@link PersistentHttpCache}.
+	 * 
+	 * @return HTTP cache
+	 */
+	protected synchronized PersistentHttpCache getHttpCache() {
+		if (httpCache == null || httpCache.getSession() != handlerFactory.getCSASession()) {
+			httpCache = new PersistentHttpCache(new File(swampDirPath), handlerFactory.getCSASession());
+			handlerFactory.getCSASession().getClient().setHttpCache(httpCache);
 		}
-		return toolMap;
+		return httpCache;
+	}
+
+	/**
+	 * Write what the HTTP cache learned in this invocation to the SWAMP directory
+	 *
+	 */
+	public synchronized void saveHttpCache() {
+		if (httpCache != null) {
+			httpCache.save();
+		}
+	}
+
+	/**
+	 * Get the cache of tool permission decisions for the current session
+	 * 
+	 * @return permission cache
+	 */
+	protected synchronized PermissionCache getPermissionCache() {
+		if (permissionCache == null || permissionCache.getSession() != handlerFactory.getCSASession()) {
+			permissionCache = new PermissionCache(new File(swampDirPath), handlerFactory.getCSASession());
+		}
+		return permissionCache;
+	}
+
+	/**
+	 * Get the ledger of assessment runs submitted from this machine
+	 * 
+	 * @return assessment ledger
+	 */
+	public synchronized AssessmentLedger getAssessmentLedger() {
+		if (assessmentLedger == null || assessmentLedger.getSession() != handlerFactory.getCSASession()) {
+			assessmentLedger = new AssessmentLedger(new File(swampDirPath), handlerFactory.getCSASession());
+		}
+		return assessmentLedger;
 	}
 
     /**
 	 * Gets the list of assessment objects that are assigned to a project
 	 *  
 	 *  @param assessUuid: assessment UUID
-	 *  @param projectUuid: project UUID
+	 *  @param projectUuid: project UUID, or null to look the assessment up in the {@link UuidIndex}
 	 *  
 	 *  @return assessments objects
 	 *  @throws InvalidIdentifierException Invalid assessment UUI
 	 */
 	public AssessmentRun getAssessment(String assessUuid, String projectUuid) {
+		if (projectUuid == null) {
+			AssessmentRecord assessment_record = findAssessmentRecord(getProjectsList(), assessUuid);
+			if (assessment_record == null) {
+				throw new InvalidIdentifierException("Invalid assessment UUID: " + assessUuid);
+			}
+			projectUuid = assessment_record.getProjectUUID();
+		}
 		for (AssessmentRun arun : getAllAssessments(projectUuid)){
 			if (arun.getIdentifierString().equals(assessUuid)){
 				return arun;
@@ -753,7 +1172,7 @@ public class SwampApiWrapper {
     /**
 	 * Get a single assessment execution record of an assessment run
 	 *  
-	 *  @param projectUuid: project UUID
+	 *  @param projectUuid: project UUID, or null to look the assessment up in the {@link UuidIndex}
 	 *  @param assessmentUuid: assessment UUID 
 	 *  
   	 * @return assessment execution record
@@ -761,6 +1180,14 @@ public class SwampApiWrapper {
 	 */
 	public AssessmentRecord getAssessmentRecord(String projectUuid, String assessmentUuid){
 
+		if (projectUuid == null) {
+			AssessmentRecord assessment_record = findAssessmentRecord(getProjectsList(), assessmentUuid);
+			if (assessment_record == null) {
+				throw new InvalidIdentifierException("Invalid Assessment UUID: " + assessmentUuid);
+			}
+			return assessment_record;
+		}
+
 		for(AssessmentRecord assessment_record : getAllAssessmentRecords(projectUuid)) {
 			if (assessment_record.getAssessmentRunUUID().equals(assessmentUuid)){
 				return assessment_record;
@@ -802,22 +1229,27 @@ public class SwampApiWrapper {
      *  @param asssessResultUuid: asssess_result_uuid UUID
      *  @param filepath: filepath to write to  
      *  
+     *  @return false, with nothing written, if the assessment has no SCARF results
      *  @throws IOException Exceptions when writing SCARF to a file
      */
     public boolean getAssessmentResults(String asssessResultUuid, String filepath) 
             throws IOException {
         
-        for (Project project : getProjectsList()) {
+        List<Project> projects = getProjectsList();
+        Project indexed = getIndexedProject(projects, UuidIndex.Type.ASSESSMENT_RESULT, asssessResultUuid);
+        if (indexed != null) {
+            for (AssessmentResults results : getAllAssessmentResults(indexed.getIdentifierString())) {
+                if (results.getUUIDString().equals(asssessResultUuid)) {
+                    return writeScarfResults(results, filepath);
+                }
+            }
+            getUuidIndex().remove(UuidIndex.Type.ASSESSMENT_RESULT, asssessResultUuid);
+        }
+
+        for (Project project : projects) {
             for(AssessmentResults results : getAllAssessmentResults(project.getIdentifierString())){
                 if (results.getUUIDString().equals(asssessResultUuid)) {
-                    ByteArrayOutputStream data = (ByteArrayOutputStream)handlerFactory.getAssessmentResultHandler().getScarfResults(results);
-                    if (data != null) {
-                        OutputStream outputStream = new FileOutputStream(filepath);
-                        data.writeTo(outputStream);
-                        data.close();
-                        outputStream.close();
-                    }
-                    return true;
+                    return writeScarfResults(results, filepath);
                 }
             }
         }
@@ -833,6 +1265,7 @@ public class SwampApiWrapper {
 	 *  @param asssessResultUuid: asssess_result_uuid UUID
 	 *  @param filepath: filepath to write to  
 	 *  
+	 *  @return false, with nothing written, if the assessment has no SCARF results
 	 *  @throws IOException Exceptions when writing SCARF to a file
 	 */
 	public boolean getAssessmentResults(String projectUuid, String asssessResultUuid, String filepath) 
@@ -840,20 +1273,198 @@ public class SwampApiWrapper {
 
 		for(AssessmentResults results : getAllAssessmentResults(projectUuid)){
 			if (results.getUUIDString().equals(asssessResultUuid)) {
-				ByteArrayOutputStream data = (ByteArrayOutputStream)handlerFactory.getAssessmentResultHandler().getScarfResults(results);
-				if (data != null) {
-					OutputStream outputStream = new FileOutputStream(filepath);
-					data.writeTo(outputStream);
-					data.close();
-					outputStream.close();
-				}
-				return true;
+				return writeScarfResults(results, filepath);
 			}
 		}
 		
 		throw new InvalidIdentifierException("Invalid Assessment Results UUID: " + asssessResultUuid);
 	}
 
+	/**
+	 * Outcome of downloading the SCARF results of one assessment
+	 */
+	public enum DownloadStatus {
+		DOWNLOADED, SKIPPED, NO_RESULTS, FAILED
+	}
+
+	/**
+	 * Download the SCARF results of several assessments into a directory, as
+	 * <code>&lt;RESULTS_UUID&gt;.xml</code> (or <code>.xml.gz</code>), up to {@link FanOut#CONCURRENCY_PROPERTY}
+	 * at a time. A file that is already there with the size the server reports is
+	 * not downloaded again. Files are written under a temporary name and renamed
+	 * once complete, so an interrupted download is simply repeated.
+	 * <p>
+	 * A download that fails, including one the server answers with an error
+	 * status, does not stop the others; it is logged and reported as
+	 * {@link DownloadStatus#FAILED}.
+	 *  
+	 *  @param records: assessment execution records, those without results are ignored
+	 *  @param directory: directory to write to, created if needed
+	 *  @param gzip: compress the files
+	 *  
+	 *  @return hash-map of results UUID, outcome, in the order of the records
+	 *  @throws IOException if the directory cannot be created
+	 */
+	public Map<String, DownloadStatus> downloadScarfResults(List<? extends AssessmentRecord> records, final File directory,
+			boolean gzip) throws IOException {
+		final String suffix = gzip ? ".xml.gz" : ".xml";
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create directory: " + directory);
+		}
+
+		Set<String> results_uuids = new LinkedHashSet<String>();
+		for (AssessmentRecord assessment_record : records) {
+			if (assessment_record.getAssessmentResultUUID() != null) {
+				results_uuids.add(assessment_record.getAssessmentResultUUID());
+			}
+		}
+
+		List<String> uuid_list = new ArrayList<String>(results_uuids);
+		List<DownloadStatus> statuses = getFanOut().map(uuid_list, new FanOut.Task<String, DownloadStatus>() {
+			@Override
+			public DownloadStatus call(String results_uuid) {
+				try {
+					return downloadScarfResults(results_uuid, new File(directory, results_uuid + suffix));
+				}catch (HTTPException e) {
+					LOGGER.warn("Downloading SCARF for " + results_uuid + " failed with HTTP status " + e.getStatusCode(), e);
+					return DownloadStatus.FAILED;
+				}catch (Exception e) {
+					LOGGER.warn("Downloading SCARF for " + results_uuid + " failed", e);
+					return DownloadStatus.FAILED;
+				}
+			}
+		});
+
+		Map<String, DownloadStatus> outcome = new LinkedHashMap<String, DownloadStatus>();
+		for (int i = 0; i < uuid_list.size(); i++) {
+			outcome.put(uuid_list.get(i), statuses.get(i));
+		}
+		return outcome;
+	}
+
+	/**
+	 * Download the SCARF results of an assessment into a file unless the file is
+	 * already there with the same size. The size is asked for with a HEAD, so
+	 * results that are skipped are not transferred.
+	 *  
+	 *  @param resultsUuid: assessment results UUID
+	 *  @param file: file to write to
+	 *  
+	 *  @return outcome, {@link DownloadStatus#NO_RESULTS} only if the server says there are none
+	 *  @throws IOException Exceptions when writing SCARF to the file
+	 *  @throws HTTPException if the server answers with an error status
+	 */
+	protected DownloadStatus downloadScarfResults(String resultsUuid, File file) throws IOException {
+		// files only get their final name when complete, so without a length to compare, one that exists is done
+		if (file.isFile()) {
+			if (isGzipPath(file.getPath())) {
+				return DownloadStatus.SKIPPED;
+			}
+			long length = handlerFactory.getAssessmentResultHandler().getScarfResultsLength(resultsUuid);
+			if (length < 0 || length == file.length()) {
+				return DownloadStatus.SKIPPED;
+			}
+		}
+		MyResponse scarf = handlerFactory.getAssessmentResultHandler().getScarfResultsStream(resultsUuid);
+		if (scarf == null) {
+			return DownloadStatus.NO_RESULTS;
+		}
+		try {
+			writeScarf(scarf, file);
+			return DownloadStatus.DOWNLOADED;
+		} finally {
+			scarf.close();
+		}
+	}
+
+	/**
+	 * Streams SCARF results from the server straight into a file. Nothing is written if there are no results.
+	 *
+	 *  @param results: assessment results
+	 *  @param filepath: filepath to write to, gzip compressed if it ends in .gz
+	 *
+	 *  @return false if there are no results
+	 *  @throws IOException Exceptions when writing SCARF to a file
+	 */
+	protected boolean writeScarfResults(AssessmentResults results, String filepath) throws IOException {
+		MyResponse scarf = handlerFactory.getAssessmentResultHandler().getScarfResultsStream(results);
+		if (scarf == null) {
+			return false;
+		}
+		try {
+			writeScarf(scarf, new File(filepath));
+		} finally {
+			scarf.close();
+		}
+		return true;
+	}
+
+	/**
+	 * Copies a streaming SCARF response into a file a buffer at a time, so memory
+	 * use does not depend on the size of the results. The file is compressed on
+	 * the fly if its name ends in .gz. It is written under a temporary name and
+	 * only renamed once complete. A SHA-256 of the file is computed on the way
+	 * and, if {@link #setScarfChecksums(boolean)} is on, written next to it as
+	 * <code>&lt;file&gt;.sha256</code> in the format of sha256sum.
+	 *
+	 *  @param scarf: streaming response, not closed here
+	 *  @param file: file to write to
+	 *
+	 *  @return SHA-256 of the file, in hex
+	 *  @throws IOException Exceptions when writing SCARF to the file
+	 */
+	protected String writeScarf(MyResponse scarf, File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+
+		File part = new File(file.getPath() + ".part");
+		boolean complete = false;
+		try {
+			OutputStream outputStream = new DigestOutputStream(new BufferedOutputStream(new FileOutputStream(part)), digest);
+			if (isGzipPath(file.getPath())) {
+				outputStream = new GZIPOutputStream(outputStream, 8192);
+			}
+			try {
+				scarf.writeTo(outputStream);
+			} finally {
+				outputStream.close();
+			}
+			Files.move(part.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			complete = true;
+		} finally {
+			if (!complete) {
+				part.delete();
+			}
+		}
+
+		StringBuilder checksum = new StringBuilder();
+		for (byte b : digest.digest()) {
+			checksum.append(String.format("%02x", b));
+		}
+		if (scarfChecksums) {
+			Files.write(Paths.get(file.getPath() + ".sha256"), 
+					(checksum + "  " + file.getName() + "\n").getBytes("UTF-8"));
+		}
+		return checksum.toString();
+	}
+
+	protected static boolean isGzipPath(String filepath) {
+		return filepath.toLowerCase().endsWith(".gz");
+	}
+
+	/**
+	 * Whether to write a <code>.sha256</code> file next to each SCARF file downloaded
+	 *
+	 *  @param scarfChecksums: true to write checksums
+	 */
+	public void setScarfChecksums(boolean scarfChecksums) {
+		this.scarfChecksums = scarfChecksums;
+	}
+
 	/**
 	 * Gets currently connected SWAMP host name
 	 *
@@ -1003,21 +1614,27 @@ public class SwampApiWrapper {
 	}
 
 	/**
-     * Get a hash-map of all the package versions uploaded by a user or accessible to a user
+     * Get the versions of a package
      *
-     *  @return hash-map of package-version-uuid, package version object
+     *  @return list of package version objects
      */
     protected List<PackageVersion> getPackageVersions(PackageThing pkg) {
-        if (packageVersionMap == null) {
-            packageVersionMap = new HashMap<String, PackageVersion>();
-        }   
-        
-        List <PackageVersion> package_versions = (List <PackageVersion>)handlerFactory.getPackageVersionHandler().getAll(pkg);
-        for (PackageVersion pkg_ver : package_versions) {
-            packageVersionMap.put(pkg_ver.getUUIDString(), pkg_ver);
-        }
-        
-        return package_versions;
+        return (List <PackageVersion>)handlerFactory.getPackageVersionHandler().getAll(pkg);
+    }
+
+	/**
+     * Get the versions of several packages, fetched in parallel
+     *
+     *  @param packages: list of package objects
+     *  @return list of the versions of each package, in the same order as the packages
+     */
+    protected List<List<PackageVersion>> getPackageVersions(List<PackageThing> packages) {
+        return getFanOut().map(packages, new FanOut.Task<PackageThing, List<PackageVersion>>() {
+            @Override
+            public List<PackageVersion> call(PackageThing pkg) {
+                return getPackageVersions(pkg);
+            }
+        });
     }
 
 	/**
@@ -1510,6 +2127,7 @@ public class SwampApiWrapper {
 				proxy);
 
 		if (handlerFactory != null){
+			getHttpCache();
 			return handlerFactory.getUserHandler().getCurrentUser().getIdentifierString();
 		}
 
@@ -1522,6 +2140,7 @@ public class SwampApiWrapper {
 	 */
 	public void logout() {
 		HandlerFactoryUtil.shutdown();
+		httpCache = null;
 		deleteSession();
 	}
 
@@ -1602,6 +2221,7 @@ public class SwampApiWrapper {
 
 			handlerFactory.getCSASession().getClient().getContext().setCookieStore(csa_cookie_store);
 			HandlerFactoryUtil.setHandlerFactory(handlerFactory);
+			getHttpCache();
 		}catch (IOException e){
 			throw new SessionRestoreException(e);
 		}catch (ClassNotFoundException e){
@@ -1612,31 +2232,63 @@ public class SwampApiWrapper {
 	}
 
 	public boolean hasToolPermission(String tool_uuid, String project_uuid, String package_uuid) {
-        try {
-            handlerFactory.getToolHandler().hasPermission(tool_uuid, project_uuid, package_uuid);
-        }catch(HTTPException exp) {
-            /*
-             if (exp.getMessage().equalsIgnoreCase("no_permission") && exp.getStatusCode() == 401) {
-                return false;
-            }*/
-            return false;
-        }
-        return true;
+        boolean granted = checkToolPermission(tool_uuid, project_uuid, package_uuid) == null;
+        getPermissionCache().save();
+        return granted;
     }    
 
 	
 	public boolean hasToolPermission(Tool tool, PackageThing pkg, Project project) {
-	    try {
-	        handlerFactory.getToolHandler().hasPermission(tool, project, pkg);
-	    }catch(HTTPException exp) {
-	        /*if (exp.getMessage().equalsIgnoreCase("no_permission") && exp.getStatusCode() == 401) {
-	            return false;
-	        }*/
-	        return false;
-	    }
-	    return true;
+	    return hasToolPermission(tool.getUUIDString(), project.getUUIDString(), pkg.getUUIDString());
 	}    
 
+	/**
+	 * Check whether a tool may be used on a package in a project, asking SWAMP
+	 * only if the {@link PermissionCache} has no current decision. Call
+	 * {@link PermissionCache#save()} afterwards to keep new decisions.
+	 *
+	 *  @param toolUuid: tool UUID
+	 *  @param projectUuid: project UUID
+	 *  @param packageUuid: package UUID
+	 *
+	 *  @return null if permitted, or the reason given by SWAMP
+	 */
+	protected String checkToolPermission(String toolUuid, String projectUuid, String packageUuid) {
+		PermissionCache cache = getPermissionCache();
+		PermissionCache.Decision decision = cache.get(toolUuid, projectUuid, packageUuid);
+		if (decision == null) {
+			try {
+				// as always, only an error counts as a refusal: the reply format is not relied on
+				handlerFactory.getToolHandler().hasPermission(toolUuid, projectUuid, packageUuid);
+				decision = cache.put(toolUuid, projectUuid, packageUuid, true, null);
+			}catch(HTTPException exp) {
+				if (!isPermissionDenial(exp)) {
+					return exp.getMessage(); // not a decision, ask again next time
+				}
+				decision = cache.put(toolUuid, projectUuid, packageUuid, false, exp.getMessage());
+			}
+		}
+		return decision.isGranted() ? null : decision.getMessage();
+	}
+
+	/**
+	 * Whether SWAMP refused a tool permission request because the permission
+	 * is missing, as opposed to failing to answer it (e.g. an expired session,
+	 * rate limiting or a server error). SWAMP reports a missing permission
+	 * with 403, or with 401 and a <code>no_permission</code> status.
+	 *
+	 *  @param exp: the error of the request
+	 *
+	 *  @return true if the error is an answer worth remembering
+	 */
+	protected static boolean isPermissionDenial(HTTPException exp) {
+		if (exp.getStatusCode() == 403) {
+			return true;
+		}
+		return exp.getStatusCode() == 401 && exp.getMessage() != null 
+				&& exp.getMessage().contains("no_permission");
+	}
+
 	/**
 	 * Run multiple assessments, on a package with a set of tools on a set of platforms
 	 *  
@@ -1651,23 +2303,7 @@ public class SwampApiWrapper {
 	 */
 	protected List<AssessmentRun> runAssessment(PackageVersion pkg, List<Tool> tools, 
 			Project project, List<PlatformVersion> platformVersions) {
-		List<AssessmentRun> arun_list = new ArrayList<AssessmentRun>();
-		for (PlatformVersion platform_version : platformVersions) {
-			for (Tool tool : tools) {
-			    try {
-		            handlerFactory.getToolHandler().hasPermission(tool, project, pkg.getPackageThing());
-		        }catch(HTTPException exp) {
-		            throw new ToolPermissionException("No permission for the tool: '" + exp.getMessage() + "', " + tool);
-		        }
-				arun_list.add(handlerFactory.getAssessmentHandler().create(project, pkg, platform_version, tool));
-			}
-		}
-		if (handlerFactory.getRunRequestHandler().submitOneTimeRequest(arun_list, true)){
-			return arun_list;
-		}else {
-			return null;
-		}
-
+		return submitAssessments(pkg, project, tools, null, platformVersions);
 	}
 
 	/**
@@ -1683,18 +2319,8 @@ public class SwampApiWrapper {
 	 *  
 	 */
 	public AssessmentRun runAssessment(PackageVersion pkg, Tool tool, Project project, PlatformVersion platform) {
-	    try {
-            handlerFactory.getToolHandler().hasPermission(tool, project, pkg.getPackageThing());
-        }catch(HTTPException exp) {
-            throw new ToolPermissionException("No permission for the tool: '" + exp.getMessage() + "', " + tool.getName());
-        }
-	    
-		AssessmentRun arun = handlerFactory.getAssessmentHandler().create(project, pkg, platform, tool);
-		if (handlerFactory.getRunRequestHandler().submitOneTimeRequest(arun, true)) {
-			return arun;
-		}else{
-			return null;
-		}
+		List<AssessmentRun> arun_list = submitAssessments(pkg, project, Arrays.asList(tool), null, Arrays.asList(platform));
+		return arun_list == null ? null : arun_list.get(0);
 	}
 
 	/**
@@ -1711,24 +2337,179 @@ public class SwampApiWrapper {
      */
     public List<AssessmentRun> runAssessment(PackageVersion pkg, ToolVersion toolVersion, Project project, 
             List<PlatformVersion> platformVersions) {
-        
-        try {
-            handlerFactory.getToolHandler().hasPermission(toolVersion.getTool(), project, pkg.getPackageThing());
-        }catch(HTTPException exp) {
-            throw new ToolPermissionException("No permission for the tool: '" + exp.getMessage() + "', " + toolVersion.getTool().getName());
-        }
-        
-        List<AssessmentRun> arun_list = new ArrayList<AssessmentRun>(platformVersions.size());
-        for (PlatformVersion platform_version : platformVersions) {
-            arun_list.add(handlerFactory.getAssessmentHandler().create(project, pkg, platform_version, toolVersion));
-        }
-        if (handlerFactory.getRunRequestHandler().submitOneTimeRequest(arun_list, true)) {
-            return arun_list;
-        }else{
-            return null;
+        return runAssessments(pkg, Arrays.asList(toolVersion), project, platformVersions);
+    }
+
+    /**
+     * Run assessments on a package with several tool versions on a set of platforms,
+     * submitting them all in one request
+     *  
+     *  @param pkg: package version object
+     *  @param toolVersions: list of tool version objects
+     *  @param project: project object
+     *  @param platformVersions: list of platform version objects
+     *  
+     *  @return list of assessment run objects, tools varying fastest
+     *  
+     */
+    public List<AssessmentRun> runAssessments(PackageVersion pkg, List<ToolVersion> toolVersions, Project project, 
+            List<PlatformVersion> platformVersions) {
+        List<Tool> tools = new ArrayList<Tool>(toolVersions.size());
+        for (ToolVersion tool_version : toolVersions) {
+            tools.add(tool_version.getTool());
         }
+        return submitAssessments(pkg, project, tools, toolVersions, platformVersions);
     }
 
+	/*
+	 * One (tool, platform) of a batch, with the run created for it or the reason it could not be.
+	 */
+	private static class AssessmentTuple {
+		Tool tool;
+		ToolVersion toolVersion;
+		PlatformVersion platformVersion;
+		AssessmentRun arun;
+		RuntimeException error;
+
+		AssessmentTuple(Tool tool, ToolVersion toolVersion, PlatformVersion platformVersion) {
+			this.tool = tool;
+			this.toolVersion = toolVersion;
+			this.platformVersion = platformVersion;
+		}
+
+		public String toString() {
+			return (toolVersion != null ? tool.getName() + " " + toolVersion.getVersion() : tool.getName())
+					+ " on " + platformVersion.getDisplayString();
+		}
+	}
+
+	/**
+	 * Create assessment runs for every tool on every platform and submit them in one request.
+	 * <p>
+	 * The permission to use each distinct tool is checked once, and nothing is created if any
+	 * is missing. The runs are then created concurrently, up to {@link FanOut#CONCURRENCY_PROPERTY}
+	 * at a time. If any of them fails, the ones that were created are deleted again and the
+	 * failures are reported together, so a batch is submitted either whole or not at all.
+	 *  
+	 *  @param pkg: package version object
+	 *  @param project: project object
+	 *  @param tools: list of tool objects
+	 *  @param toolVersions: tool version for each tool, or null for their latest versions
+	 *  @param platformVersions: list of platform version objects
+	 *  
+	 *  @return list of assessment run objects, tools varying fastest, or null if submission failed,
+	 *  in which case the runs created for it are deleted again
+	 *  @throws ToolPermissionException if a tool may not be used on the package
+	 *  @throws AssessmentCreationException if some of the runs could not be created
+	 */
+	protected List<AssessmentRun> submitAssessments(final PackageVersion pkg, final Project project, 
+			List<Tool> tools, List<ToolVersion> toolVersions, List<PlatformVersion> platformVersions) {
+
+		Map<String, Tool> distinct_tools = new LinkedHashMap<String, Tool>();
+		for (Tool tool : tools) {
+			distinct_tools.put(tool.getUUIDString(), tool);
+		}
+		List<String> denied = new ArrayList<String>();
+		for (String message : getFanOut().map(new ArrayList<Tool>(distinct_tools.values()), 
+				new FanOut.Task<Tool, String>() {
+			@Override
+			public String call(Tool tool) {
+				String message = checkToolPermission(tool.getUUIDString(), project.getUUIDString(), 
+						pkg.getPackageThing().getUUIDString());
+				return message == null ? null : "'" + message + "', " + tool.getName();
+			}
+		})) {
+			if (message != null) {
+				denied.add(message);
+			}
+		}
+		getPermissionCache().save();
+		if (!denied.isEmpty()) {
+			StringBuilder sb = new StringBuilder();
+			for (String message : denied) {
+				sb.append(sb.length() == 0 ? "" : "; ").append(message);
+			}
+			throw new ToolPermissionException("No permission for the tool: " + sb);
+		}
+
+		List<AssessmentTuple> tuples = new ArrayList<AssessmentTuple>();
+		for (PlatformVersion platform_version : platformVersions) {
+			for (int i = 0; i < tools.size(); i++) {
+				tuples.add(new AssessmentTuple(tools.get(i), toolVersions == null ? null : toolVersions.get(i), platform_version));
+			}
+		}
+
+		Date submitted = new Date();
+		getFanOut().map(tuples, new FanOut.Task<AssessmentTuple, AssessmentTuple>() {
+			@Override
+			public AssessmentTuple call(AssessmentTuple tuple) {
+				try {
+					if (tuple.toolVersion != null) {
+						tuple.arun = handlerFactory.getAssessmentHandler().create(project, pkg, tuple.platformVersion, tuple.toolVersion);
+					}else {
+						tuple.arun = handlerFactory.getAssessmentHandler().create(project, pkg, tuple.platformVersion, tuple.tool);
+					}
+				}catch(RuntimeException e) {
+					tuple.error = e;
+				}
+				return tuple;
+			}
+		});
+
+		List<AssessmentRun> arun_list = new ArrayList<AssessmentRun>(tuples.size());
+		List<String> failures = new ArrayList<String>();
+		for (AssessmentTuple tuple : tuples) {
+			if (tuple.error != null) {
+				failures.add(tuple + ": " + tuple.error.getMessage());
+			}else {
+				arun_list.add(tuple.arun);
+			}
+		}
+		if (!failures.isEmpty()) {
+			deleteAssessmentRuns(arun_list);
+			throw new AssessmentCreationException(failures);
+		}
+
+		boolean requested = false;
+		try {
+			requested = handlerFactory.getRunRequestHandler().submitOneTimeRequest(arun_list, true);
+		}finally {
+			// runs that will never be started are of no use to anyone
+			if (!requested) {
+				deleteAssessmentRuns(arun_list);
+			}
+		}
+		if (!requested) {
+			return null;
+		}
+
+		List<AssessmentLedger.Entry> submission = new ArrayList<AssessmentLedger.Entry>(tuples.size());
+		for (AssessmentTuple tuple : tuples) {
+			submission.add(new AssessmentLedger.Entry(tuple.arun.getUUIDString(), project.getUUIDString(),
+					pkg.getUUIDString(), tuple.tool.getUUIDString(),
+					tuple.toolVersion == null ? null : tuple.toolVersion.getUUIDString(),
+					tuple.platformVersion.getUUIDString(), submitted));
+		}
+		recordSubmission(submission);
+		return arun_list;
+	}
+
+	/**
+	 * Delete assessment runs that were created but not submitted, logging
+	 * those that could not be deleted
+	 *
+	 *  @param aruns: assessment run objects
+	 */
+	protected void deleteAssessmentRuns(List<AssessmentRun> aruns) {
+		for (AssessmentRun arun : aruns) {
+			try {
+				handlerFactory.getAssessmentHandler().delete(arun);
+			}catch(RuntimeException e) {
+				LOGGER.warn("Could not delete assessment run " + arun.getUUIDString(), e);
+			}
+		}
+	}
+
  	/**
 	 * Run assessments on a package with a set of tools on a set of platforms
 	 *  <p>
@@ -1964,8 +2745,9 @@ public class SwampApiWrapper {
 
 		addPackageDependencies(pkg_version, osDepMap);
 
-		packageVersionMap = null;
-		packageMap = null;
+		packageCache.clear();
+		packageVersionCache.clear();
+		getCatalogCache().invalidate(PACKAGES_CATALOG_PREFIX);
 		//getAllPackageVersions(project_uuid).put(pkg_version.getIdentifierString(), pkg_version);
 		//getAllPackages(project_uuid).put(pkg_thing.getIdentifierString(), pkg_thing);
 
@@ -2044,7 +2826,8 @@ public class SwampApiWrapper {
 					new File(pkgArchiveFile),
 					map);
 			addPackageDependencies(pkg_version, osDepMap);
-			packageVersionMap = null;
+			packageVersionCache.clear();
+			getCatalogCache().invalidate(PACKAGE_VERSIONS_CATALOG);
 			//getAllPackageVersions(project_uuid);
 
 			return pkg_version.getUUIDString();
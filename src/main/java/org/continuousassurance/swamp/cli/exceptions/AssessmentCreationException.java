@@ -0,0 +1,49 @@
+/*
+*  java-cli
+*
+*  Copyright 2016 Vamshi Basupalli <vamshi@cs.wisc.edu>, Malcolm Reid <mreid3@wisc.edu>, Jared Sweetland <jsweetland@wisc.edu>
+*
+*  Licensed under the Apache License, Version 2.0 (the "License");
+*  you may not use this file except in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing, software
+*  distributed under the License is distributed on an "AS IS" BASIS,
+*  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express implied.
+*  See the License for the specific language governing permissions and
+*  limitations under the License.
+*/
+package org.continuousassurance.swamp.cli.exceptions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thrown when some of the assessment runs of a batch could not be created. None of the batch is submitted.
+ */
+public class AssessmentCreationException extends SwampApiWrapperException {
+	List<String> failures;
+
+	/**
+	 * @param failures one message per (tool, platform) that failed
+	 */
+	public AssessmentCreationException(List<String> failures){
+	    super("Could not create " + failures.size() + " assessment run(s):\n" + join(failures));
+	    this.failures = new ArrayList<String>(failures);
+	    setExitCode(SwampApiWrapperExitCodes.ASSESSMENT_CREATION_FAILED);
+	}
+
+	public List<String> getFailures() {
+		return failures;
+	}
+
+	private static String join(List<String> failures) {
+		StringBuilder sb = new StringBuilder();
+		for (String failure : failures) {
+			sb.append("  ").append(failure).append("\n");
+		}
+		return sb.toString();
+	}
+}
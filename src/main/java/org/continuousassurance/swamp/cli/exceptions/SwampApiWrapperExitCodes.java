@@ -31,6 +31,7 @@ public enum SwampApiWrapperExitCodes {
 	INVALID_NAME(9),
 	CONFLICTING_NAME(10),
 	TOOL_NO_PERMISSION(11),
+	ASSESSMENT_CREATION_FAILED(12),
 	
 	HTTP_EXCEPTION(20),
 	HTTP_GENERAL_EXCEPTION(30),
@@ -0,0 +1,243 @@
+package org.continuousassurance.swamp.cli.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.continuousassurance.swamp.session.Session;
+
+/**
+ * A record of the assessment runs submitted from this machine: for each run its project, package version,
+ * tool, platform version and when it was submitted. It is the file {@link #FILE_NAME} in the SWAMP session
+ * directory, to which each submission appends one tab separated line per run, so it is never rewritten and
+ * writers running at the same time do not lose each other's lines. It is read back once into an index by
+ * run UUID.
+ * <p>
+ * The first line names the SWAMP host and user, see {@link SessionFiles}. Entries for anyone else are ignored,
+ * and the file is started over by the next submission.
+ */
+public class AssessmentLedger {
+	public static final String FILE_NAME = "assessment-ledger.txt";
+
+	protected static final Logger LOGGER = Logger.getLogger(AssessmentLedger.class);
+	protected static final Charset UTF8 = Charset.forName("UTF-8");
+	static final String NONE = "-";
+
+	/**
+	 * One submitted assessment run.
+	 */
+	public static class Entry {
+		String runUuid;
+		String projectUuid;
+		String packageVersionUuid;
+		String toolUuid;
+		String toolVersionUuid;
+		String platformVersionUuid;
+		Date submitted;
+
+		/**
+		 * @param toolVersionUuid null if the run uses the latest version of the tool
+		 */
+		public Entry(String runUuid, String projectUuid, String packageVersionUuid, String toolUuid,
+				String toolVersionUuid, String platformVersionUuid, Date submitted) {
+			this.runUuid = runUuid;
+			this.projectUuid = projectUuid;
+			this.packageVersionUuid = packageVersionUuid;
+			this.toolUuid = toolUuid;
+			this.toolVersionUuid = toolVersionUuid;
+			this.platformVersionUuid = platformVersionUuid;
+			this.submitted = submitted;
+		}
+
+		public String getRunUuid() {
+			return runUuid;
+		}
+
+		public String getProjectUuid() {
+			return projectUuid;
+		}
+
+		public String getPackageVersionUuid() {
+			return packageVersionUuid;
+		}
+
+		public String getToolUuid() {
+			return toolUuid;
+		}
+
+		public String getToolVersionUuid() {
+			return toolVersionUuid;
+		}
+
+		public String getPlatformVersionUuid() {
+			return platformVersionUuid;
+		}
+
+		public Date getSubmitted() {
+			return submitted;
+		}
+
+		String toLine() {
+			return field(runUuid) + "\t" + field(projectUuid) + "\t" + field(packageVersionUuid) + "\t"
+					+ field(toolUuid) + "\t" + field(toolVersionUuid) + "\t" + field(platformVersionUuid) + "\t"
+					+ submitted.getTime() + "\n";
+		}
+
+		static Entry fromLine(String line) {
+			String[] fields = line.split("\t");
+			if (fields.length != 7) {
+				return null;
+			}
+			try {
+				return new Entry(value(fields[0]), value(fields[1]), value(fields[2]), value(fields[3]),
+						value(fields[4]), value(fields[5]), new Date(Long.parseLong(fields[6])));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		static String field(String value) {
+			return value == null || value.isEmpty() ? NONE : value;
+		}
+
+		static String value(String field) {
+			return NONE.equals(field) ? null : field;
+		}
+	}
+
+	File file;
+	Session session;
+	List<Entry> entries;
+	Map<String, Entry> index;
+
+	public AssessmentLedger(File dir, Session session) {
+		this.file = dir == null ? null : new File(dir, FILE_NAME);
+		this.session = session;
+	}
+
+	public Session getSession() {
+		return session;
+	}
+
+	/**
+	 * Returns the submission of the run, or null if it was not submitted from here.
+	 *
+	 * @param runUuid
+	 * @return
+	 */
+	public synchronized Entry get(String runUuid) {
+		load();
+		return index.get(runUuid);
+	}
+
+	/**
+	 * Every submission, oldest first.
+	 *
+	 * @return
+	 */
+	public synchronized List<Entry> getEntries() {
+		load();
+		return Collections.unmodifiableList(new ArrayList<Entry>(entries));
+	}
+
+	protected void load() {
+		if (entries != null) {
+			return;
+		}
+		entries = new ArrayList<Entry>();
+		index = new HashMap<String, Entry>();
+		if (file == null || !file.isFile()) {
+			return;
+		}
+		BufferedReader in = null;
+		try {
+			in = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+			if (!SessionFiles.getHeader(session).equals(in.readLine())) {
+				return;
+			}
+			String line;
+			while ((line = in.readLine()) != null) {
+				Entry entry = Entry.fromLine(line);
+				if (entry != null && entry.runUuid != null) {
+					add(entry);
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Ignoring unreadable assessment ledger " + file, e);
+		} finally {
+			SessionFiles.closeQuietly(in);
+		}
+	}
+
+	protected void add(Entry entry) {
+		entries.add(entry);
+		index.put(entry.runUuid, entry);
+	}
+
+	/**
+	 * Appends the runs of one submission. If that fails, status and results lookups just search every project
+	 * for these runs.
+	 *
+	 * @param submission
+	 */
+	public synchronized void append(List<Entry> submission) {
+		load();
+		for (Entry entry : submission) {
+			add(entry);
+		}
+		if (file == null || submission.isEmpty()) {
+			return;
+		}
+		StringBuilder lines = new StringBuilder();
+		for (Entry entry : submission) {
+			lines.append(entry.toLine());
+		}
+		FileOutputStream out = null;
+		try {
+			File dir = file.getParentFile();
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				return;
+			}
+			boolean created = !file.exists();
+			out = new FileOutputStream(file, true);
+			if (created) {
+				SessionFiles.setOwnerOnly(file);
+			}
+			FileLock lock = out.getChannel().lock();
+			try {
+				if (out.getChannel().size() == 0 || !hasOwnHeader()) {
+					out.getChannel().truncate(0);
+					lines.insert(0, SessionFiles.getHeader(session) + "\n");
+				}
+				out.write(lines.toString().getBytes(UTF8));
+			} finally {
+				lock.release();
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Could not append to assessment ledger " + file, e);
+		} finally {
+			SessionFiles.closeQuietly(out);
+		}
+	}
+
+	protected boolean hasOwnHeader() throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+		try {
+			return SessionFiles.getHeader(session).equals(in.readLine());
+		} finally {
+			in.close();
+		}
+	}
+}
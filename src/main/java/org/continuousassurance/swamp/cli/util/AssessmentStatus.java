@@ -39,6 +39,23 @@ public enum AssessmentStatus {
 		return false;
 	}
 	
+	/**
+	 * Whether an in-progress assessment is still waiting for a machine,
+	 * as opposed to being assessed.
+	 */
+	public static boolean isQueued(String status_str) {
+		List<String> queued_status_list = Arrays.asList("WAITING TO START",
+				"SUBMITTING TO HTCONDOR",
+				"Demand Queued",
+				"Swamp Off Queued", 
+				"Drain ReLaunch",
+				"Drain ReQueued",
+				"Creating HTCondor Job",
+				"Waiting in HTCondor Queue");
+		
+		return inList(queued_status_list, status_str);
+	}
+	
 	public static AssessmentStatus translateAssessmentStatus(String status_str) {
 		
 		List<String> inprogess_status_list = Arrays.asList( "WAITING TO START",
@@ -0,0 +1,436 @@
+package org.continuousassurance.swamp.cli.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.continuousassurance.swamp.api.FileHandle;
+import org.continuousassurance.swamp.api.PackageThing;
+import org.continuousassurance.swamp.api.PackageVersion;
+import org.continuousassurance.swamp.api.Platform;
+import org.continuousassurance.swamp.api.PlatformVersion;
+import org.continuousassurance.swamp.api.SwampThing;
+import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.ConversionMapImpl;
+import org.continuousassurance.swamp.session.util.JSONLibDecoder;
+import org.continuousassurance.swamp.session.util.SWAMPIdentifiers;
+import org.continuousassurance.swamp.session.util.SystemProperties;
+
+import edu.uiuc.ncsa.security.core.Identifier;
+import net.sf.json.JSON;
+import net.sf.json.JSONNull;
+
+/**
+ * An on-disk cache of the catalogs (projects, tools, platforms, packages and package versions) the CLI
+ * looks up on nearly every command. Each catalog is a file <code>catalog-&lt;key&gt;.bin</code> in the
+ * SWAMP session directory, so logging out removes them along with the session.
+ * <p>
+ * A file is only used if it has the current {@link #FORMAT_VERSION}, was written for the same SWAMP host
+ * and user as the current session (see {@link SessionFiles}) and is younger than the TTL. The TTL defaults
+ * to {@link #DEFAULT_TTL} and may be set in ms. with the system property {@link #TTL_PROPERTY}, where 0
+ * turns the cache off.
+ * <p>
+ * The encoding is a small binary one: every string (keys, class names, values) is written once and
+ * referred to by number after that, and an object shared by several entries (e.g. the package of many
+ * package versions) is written once too.
+ */
+public class CatalogCache {
+	public static final String TTL_PROPERTY = "swamp-catalog-ttl";
+	public static final long DEFAULT_TTL = 10L * 60L * 1000L; // in ms.
+	public static final int MAGIC = 0x53574343; // SWCC
+	public static final int FORMAT_VERSION = 1;
+	public static final String FILE_PREFIX = "catalog-";
+	public static final String FILE_SUFFIX = ".bin";
+
+	protected static final Logger LOGGER = Logger.getLogger(CatalogCache.class);
+	protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// value tags
+	static final int T_NULL = 0;
+	static final int T_STRING = 1;
+	static final int T_IDENTIFIER = 2;
+	static final int T_DATE = 3;
+	static final int T_TRUE = 4;
+	static final int T_FALSE = 5;
+	static final int T_INTEGER = 6;
+	static final int T_LONG = 7;
+	static final int T_DOUBLE = 8;
+	static final int T_JSON = 9;
+	static final int T_JSON_NULL = 10;
+
+	File dir;
+	Session session;
+	long ttl;
+
+	public CatalogCache(File dir, Session session) {
+		this(dir, session, getDefaultTTL());
+	}
+
+	public CatalogCache(File dir, Session session, long ttl) {
+		this.dir = dir;
+		this.session = session;
+		this.ttl = ttl;
+	}
+
+	public static long getDefaultTTL() {
+		return SystemProperties.getLong(TTL_PROPERTY, DEFAULT_TTL);
+	}
+
+	public Session getSession() {
+		return session;
+	}
+
+	public boolean isEnabled() {
+		return 0 < ttl && dir != null;
+	}
+
+	/**
+	 * The key of the catalog with the given name, optionally for a single project.
+	 *
+	 * @param name e.g. "tools"
+	 * @param projectUuid null for all projects
+	 * @return
+	 */
+	public static String key(String name, String projectUuid) {
+		return projectUuid == null ? name : name + "-" + projectUuid;
+	}
+
+	protected File getFile(String key) {
+		return new File(dir, FILE_PREFIX + key.replaceAll("[^A-Za-z0-9_.-]", "_") + FILE_SUFFIX);
+	}
+
+	/**
+	 * Reads a catalog. Returns null if there is none, or it is stale, or for another host or user, or
+	 * cannot be read for any other reason.
+	 *
+	 * @param key
+	 * @return
+	 */
+	public <T extends SwampThing> Map<String, T> get(String key) {
+		if (!isEnabled()) {
+			return null;
+		}
+		File file = getFile(key);
+		if (!file.isFile()) {
+			return null;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				return null;
+			}
+			long written = in.readLong();
+			long age = System.currentTimeMillis() - written;
+			if (age < 0 || ttl < age) {
+				return null;
+			}
+			Decoder decoder = new Decoder(in);
+			if (!SessionFiles.getOwner(session).equals(decoder.readString())) {
+				return null;
+			}
+			int count = decoder.readInt();
+			Map<String, T> map = new HashMap<String, T>(Math.max(16, count * 2));
+			for (int i = 0; i < count; i++) {
+				String id = decoder.readString();
+				@SuppressWarnings("unchecked") // the caller reads a key back as the type it was put with
+				T thing = (T) decoder.readThing();
+				map.put(id, thing);
+			}
+			return map;
+		} catch (Exception e) {
+			LOGGER.debug("Ignoring unreadable catalog " + file, e);
+			return null;
+		} finally {
+			SessionFiles.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Writes a catalog. If that fails, the catalog is just fetched again next time.
+	 *
+	 * @param key
+	 * @param map
+	 */
+	public void put(String key, final Map<String, ? extends SwampThing> map) {
+		if (!isEnabled() || map == null) {
+			return;
+		}
+		SessionFiles.replace(getFile(key), new SessionFiles.Content() {
+			@Override
+			public void writeTo(OutputStream stream) throws IOException {
+				DataOutputStream out = new DataOutputStream(stream);
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeLong(System.currentTimeMillis());
+				Encoder encoder = new Encoder(out);
+				encoder.writeString(SessionFiles.getOwner(session));
+				encoder.writeInt(map.size());
+				for (Map.Entry<String, ? extends SwampThing> entry : map.entrySet()) {
+					encoder.writeString(entry.getKey());
+					encoder.writeThing(entry.getValue());
+				}
+				out.flush();
+			}
+		});
+	}
+
+	/**
+	 * Removes every catalog whose key starts with the given prefix, e.g. after a package is uploaded.
+	 *
+	 * @param prefix
+	 */
+	public void invalidate(String prefix) {
+		if (dir == null) {
+			return;
+		}
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File f : files) {
+			if (f.getName().startsWith(FILE_PREFIX + prefix) && f.getName().endsWith(FILE_SUFFIX)) {
+				f.delete();
+			}
+		}
+	}
+
+	public void clear() {
+		invalidate("");
+	}
+
+	/**
+	 * Writes ints as varints, strings and things once each with back references after that.
+	 */
+	class Encoder {
+		DataOutputStream out;
+		Map<String, Integer> strings = new HashMap<String, Integer>();
+		Map<SwampThing, Integer> things = new IdentityHashMap<SwampThing, Integer>();
+
+		Encoder(DataOutputStream out) {
+			this.out = out;
+		}
+
+		void writeInt(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				out.writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			out.writeByte(value);
+		}
+
+		/**
+		 * 0 is null, n+1 is the string numbered n, and a new string is written as
+		 * strings.size()+1 followed by its length and UTF-8 bytes.
+		 */
+		void writeString(String s) throws IOException {
+			if (s == null) {
+				writeInt(0);
+				return;
+			}
+			Integer index = strings.get(s);
+			if (index != null) {
+				writeInt(index + 1);
+				return;
+			}
+			index = strings.size();
+			strings.put(s, index);
+			writeInt(index + 1);
+			byte[] bytes = s.getBytes(UTF8);
+			writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		/**
+		 * Same scheme as for strings. A new thing is its class, its attributes and then the things it
+		 * refers to.
+		 */
+		void writeThing(SwampThing thing) throws IOException {
+			if (thing == null) {
+				writeInt(0);
+				return;
+			}
+			Integer index = things.get(thing);
+			if (index != null) {
+				writeInt(index + 1);
+				return;
+			}
+			index = things.size();
+			things.put(thing, index);
+			writeInt(index + 1);
+			writeString(thing.getClass().getName());
+			ConversionMapImpl map = thing.getConversionMap();
+			writeInt(map.size());
+			for (Map.Entry<String, Object> entry : map.entrySet()) {
+				writeString(entry.getKey());
+				writeValue(entry.getValue());
+			}
+			if (thing instanceof PlatformVersion) {
+				writeThing(((PlatformVersion) thing).getPlatform());
+			} else if (thing instanceof PackageVersion) {
+				writeThing(((PackageVersion) thing).getPackageThing());
+				writeThing(((PackageVersion) thing).getPlatform());
+				writeThing(((PackageVersion) thing).getFileHandle());
+			}
+		}
+
+		void writeValue(Object value) throws IOException {
+			if (value == null) {
+				writeInt(T_NULL);
+			} else if (value instanceof String) {
+				writeInt(T_STRING);
+				writeString((String) value);
+			} else if (value instanceof Identifier) {
+				writeInt(T_IDENTIFIER);
+				writeString(SWAMPIdentifiers.fromIdentifier((Identifier) value));
+			} else if (value instanceof Date) {
+				writeInt(T_DATE);
+				out.writeLong(((Date) value).getTime());
+			} else if (value instanceof Boolean) {
+				writeInt((Boolean) value ? T_TRUE : T_FALSE);
+			} else if (value instanceof Integer) {
+				writeInt(T_INTEGER);
+				out.writeInt((Integer) value);
+			} else if (value instanceof Long) {
+				writeInt(T_LONG);
+				out.writeLong((Long) value);
+			} else if (value instanceof Double) {
+				writeInt(T_DOUBLE);
+				out.writeDouble((Double) value);
+			} else if (value instanceof JSONNull) {
+				writeInt(T_JSON_NULL);
+			} else if (value instanceof JSON) {
+				writeInt(T_JSON);
+				writeString(value.toString());
+			} else {
+				throw new IOException("Cannot cache a value of type " + value.getClass().getName());
+			}
+		}
+	}
+
+	class Decoder {
+		DataInputStream in;
+		List<String> strings = new ArrayList<String>();
+		List<SwampThing> things = new ArrayList<SwampThing>();
+		Map<String, Constructor<?>> constructors = new HashMap<String, Constructor<?>>();
+
+		Decoder(DataInputStream in) {
+			this.in = in;
+		}
+
+		int readInt() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				int b = in.readUnsignedByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IOException("Malformed varint");
+		}
+
+		String readString() throws IOException {
+			int n = readInt();
+			if (n == 0) {
+				return null;
+			}
+			if (n <= strings.size()) {
+				return strings.get(n - 1);
+			}
+			if (n != strings.size() + 1) {
+				throw new IOException("Bad string reference " + n);
+			}
+			byte[] bytes = new byte[readInt()];
+			in.readFully(bytes);
+			String s = new String(bytes, UTF8);
+			strings.add(s);
+			return s;
+		}
+
+		SwampThing readThing() throws Exception {
+			int n = readInt();
+			if (n == 0) {
+				return null;
+			}
+			if (n <= things.size()) {
+				return things.get(n - 1);
+			}
+			if (n != things.size() + 1) {
+				throw new IOException("Bad object reference " + n);
+			}
+			String className = readString();
+			Constructor<?> constructor = constructors.get(className);
+			if (constructor == null) {
+				Class<?> clazz = Class.forName(className);
+				if (!SwampThing.class.isAssignableFrom(clazz)) {
+					throw new IOException("Not a SWAMP object: " + className);
+				}
+				constructor = clazz.getConstructor(Session.class);
+				constructors.put(className, constructor);
+			}
+			SwampThing thing = (SwampThing) constructor.newInstance(session);
+			things.add(thing);
+			int size = readInt();
+			ConversionMapImpl map = thing.getConversionMap();
+			for (int i = 0; i < size; i++) {
+				String key = readString();
+				map.put(key, readValue());
+			}
+			if (thing instanceof PlatformVersion) {
+				PlatformVersion platformVersion = (PlatformVersion) thing;
+				platformVersion.setPlatform((Platform) readThing());
+				platformVersion.standardize();
+			} else if (thing instanceof PackageVersion) {
+				PackageVersion packageVersion = (PackageVersion) thing;
+				packageVersion.setPackageThing((PackageThing) readThing());
+				packageVersion.setPlatform((Platform) readThing());
+				packageVersion.setFileHandle((FileHandle) readThing());
+			}
+			return thing;
+		}
+
+		Object readValue() throws IOException {
+			int tag = readInt();
+			switch (tag) {
+			case T_NULL:
+				return null;
+			case T_STRING:
+				return readString();
+			case T_IDENTIFIER:
+				return SWAMPIdentifiers.toIdentifier(readString());
+			case T_DATE:
+				return new Date(in.readLong());
+			case T_TRUE:
+				return Boolean.TRUE;
+			case T_FALSE:
+				return Boolean.FALSE;
+			case T_INTEGER:
+				return in.readInt();
+			case T_LONG:
+				return in.readLong();
+			case T_DOUBLE:
+				return in.readDouble();
+			case T_JSON_NULL:
+				return JSONNull.getInstance();
+			case T_JSON:
+				return JSONLibDecoder.toJSON(readString());
+			default:
+				throw new IOException("Unknown value tag " + tag);
+			}
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package org.continuousassurance.swamp.cli.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import edu.uiuc.ncsa.security.core.exceptions.GeneralException;
+
+/**
+ * Runs the same call for each item of a list with up to a fixed number of them in flight at once, e.g. to
+ * fetch the versions of every package. Results come back in the order of the inputs.
+ * <p>
+ * The calling thread works through the list too, alongside at most concurrency - 1 helpers on the
+ * executor. Helpers that have not started by the time the list is done are cancelled, so a fan-out
+ * started from inside another one (on the same, possibly busy, executor) still finishes rather than
+ * waiting for threads that will never come free.
+ * <p>
+ * The first failure stops the remaining calls from starting and is rethrown to the caller.
+ */
+public class FanOut {
+	public static final String CONCURRENCY_PROPERTY = "swamp-fetch-concurrency";
+
+	/**
+	 * The call made for each item.
+	 */
+	public interface Task<I, O> {
+		O call(I input) throws Exception;
+	}
+
+	ExecutorService executor;
+	int concurrency;
+
+	/**
+	 * @param executor where the helpers run
+	 * @param concurrency the most calls in flight at once, counting the calling thread. 1 runs everything
+	 *            in the calling thread.
+	 */
+	public FanOut(ExecutorService executor, int concurrency) {
+		this.executor = executor;
+		this.concurrency = Math.max(1, concurrency);
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public <I, O> List<O> map(List<I> inputs, final Task<I, O> task) {
+		final List<I> items = new ArrayList<I>(inputs);
+		final int size = items.size();
+		final AtomicReferenceArray<O> results = new AtomicReferenceArray<O>(size);
+		final AtomicInteger next = new AtomicInteger(0);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				int i;
+				while (failure.get() == null && (i = next.getAndIncrement()) < size) {
+					try {
+						results.set(i, task.call(items.get(i)));
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				}
+			}
+		};
+
+		List<Future<?>> helpers = new ArrayList<Future<?>>();
+		try {
+			for (int i = 1; i < Math.min(concurrency, size); i++) {
+				helpers.add(executor.submit(worker));
+			}
+		} catch (RejectedExecutionException e) {
+			// carry on with the helpers we have
+		}
+		worker.run();
+
+		boolean interrupted = false;
+		for (Future<?> helper : helpers) {
+			if (helper.cancel(false)) {
+				continue; // never started
+			}
+			while (true) {
+				try {
+					helper.get();
+					break;
+				} catch (InterruptedException e) {
+					// the helper is working on the list, which has to be finished before returning
+					interrupted = true;
+				} catch (ExecutionException | CancellationException e) {
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		Throwable t = failure.get();
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		}
+		if (t instanceof Error) {
+			throw (Error) t;
+		}
+		if (t != null) {
+			throw new GeneralException(t.getMessage(), t);
+		}
+		List<O> list = new ArrayList<O>(size);
+		for (int i = 0; i < size; i++) {
+			list.add(results.get(i));
+		}
+		return list;
+	}
+}
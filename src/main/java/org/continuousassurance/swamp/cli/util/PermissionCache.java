@@ -0,0 +1,198 @@
+package org.continuousassurance.swamp.cli.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.SystemProperties;
+
+/**
+ * Remembers whether a tool may be used on a package in a project, so that running the same assessments again
+ * does not ask SWAMP each time. Decisions are kept in the file {@link #FILE_NAME} in the SWAMP session
+ * directory and shared by every CLI invocation of the same host and user.
+ * <p>
+ * A granted permission is trusted for {@link #POSITIVE_TTL_PROPERTY} ms. (default an hour) and a denied one
+ * for {@link #NEGATIVE_TTL_PROPERTY} ms. (default 5 minutes), so a permission granted on the web site is
+ * picked up soon. A TTL of 0 stops caching that kind of decision.
+ */
+public class PermissionCache {
+	public static final String POSITIVE_TTL_PROPERTY = "swamp-permission-ttl";
+	public static final String NEGATIVE_TTL_PROPERTY = "swamp-permission-negative-ttl";
+	public static final long DEFAULT_POSITIVE_TTL = 60L * 60L * 1000L; // in ms.
+	public static final long DEFAULT_NEGATIVE_TTL = 5L * 60L * 1000L; // in ms.
+	public static final String FILE_NAME = "tool-permissions.txt";
+
+	protected static final Logger LOGGER = Logger.getLogger(PermissionCache.class);
+	protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Whether a tool may be used, and if not the reason SWAMP gave.
+	 */
+	public static class Decision {
+		boolean granted;
+		String message;
+		long decided;
+
+		public Decision(boolean granted, String message, long decided) {
+			this.granted = granted;
+			this.message = message;
+			this.decided = decided;
+		}
+
+		public boolean isGranted() {
+			return granted;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+	}
+
+	File file;
+	Session session;
+	long positiveTTL;
+	long negativeTTL;
+	boolean loaded = false;
+	boolean dirty = false;
+	Map<String, Decision> decisions = new HashMap<String, Decision>();
+
+	public PermissionCache(File dir, Session session) {
+		this(dir, session, SystemProperties.getLong(POSITIVE_TTL_PROPERTY, DEFAULT_POSITIVE_TTL),
+				SystemProperties.getLong(NEGATIVE_TTL_PROPERTY, DEFAULT_NEGATIVE_TTL));
+	}
+
+	public PermissionCache(File dir, Session session, long positiveTTL, long negativeTTL) {
+		this.file = dir == null ? null : new File(dir, FILE_NAME);
+		this.session = session;
+		this.positiveTTL = positiveTTL;
+		this.negativeTTL = negativeTTL;
+	}
+
+	public Session getSession() {
+		return session;
+	}
+
+	static String key(String toolUuid, String projectUuid, String packageUuid) {
+		return toolUuid + "\t" + projectUuid + "\t" + packageUuid;
+	}
+
+	protected boolean isCurrent(Decision decision, long now) {
+		long ttl = decision.granted ? positiveTTL : negativeTTL;
+		long age = now - decision.decided;
+		return 0 <= age && age < ttl;
+	}
+
+	/**
+	 * Returns the cached decision, or null if there is none or it has expired.
+	 *
+	 * @param toolUuid
+	 * @param projectUuid
+	 * @param packageUuid
+	 * @return
+	 */
+	public synchronized Decision get(String toolUuid, String projectUuid, String packageUuid) {
+		load();
+		Decision decision = decisions.get(key(toolUuid, projectUuid, packageUuid));
+		return decision != null && isCurrent(decision, System.currentTimeMillis()) ? decision : null;
+	}
+
+	/**
+	 * Caches a decision SWAMP has just made. Call {@link #save()} to keep it.
+	 *
+	 * @return the decision
+	 */
+	public synchronized Decision put(String toolUuid, String projectUuid, String packageUuid, boolean granted,
+			String message) {
+		load();
+		Decision decision = new Decision(granted, message, System.currentTimeMillis());
+		if ((granted ? positiveTTL : negativeTTL) > 0) {
+			decisions.put(key(toolUuid, projectUuid, packageUuid), decision);
+			dirty = true;
+		}
+		return decision;
+	}
+
+	public synchronized void clear() {
+		load();
+		if (!decisions.isEmpty()) {
+			decisions.clear();
+			dirty = true;
+		}
+	}
+
+	protected void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (file == null || !file.isFile()) {
+			return;
+		}
+		BufferedReader in = null;
+		try {
+			in = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+			if (!SessionFiles.getHeader(session).equals(in.readLine())) {
+				return;
+			}
+			String line;
+			while ((line = in.readLine()) != null) {
+				// tool project package granted decided message
+				String[] fields = line.split("\t", 6);
+				if (fields.length != 6) {
+					continue;
+				}
+				try {
+					decisions.put(key(fields[0], fields[1], fields[2]), new Decision(Boolean.parseBoolean(fields[3]),
+							fields[5].isEmpty() ? null : fields[5], Long.parseLong(fields[4])));
+				} catch (NumberFormatException e) {
+					// skip it
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Ignoring unreadable permission cache " + file, e);
+		} finally {
+			SessionFiles.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Writes the current decisions if any were added, dropping expired ones. If that fails, the permissions
+	 * are just asked for again next time.
+	 */
+	public synchronized void save() {
+		if (!dirty || file == null) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		for (Iterator<Decision> it = decisions.values().iterator(); it.hasNext();) {
+			if (!isCurrent(it.next(), now)) {
+				it.remove();
+			}
+		}
+		dirty = !SessionFiles.replace(file, new SessionFiles.Content() {
+			@Override
+			public void writeTo(OutputStream stream) throws IOException {
+				Writer out = new BufferedWriter(new OutputStreamWriter(stream, UTF8));
+				out.write(SessionFiles.getHeader(session) + "\n");
+				for (Map.Entry<String, Decision> entry : decisions.entrySet()) {
+					Decision decision = entry.getValue();
+					String message = decision.message == null ? "" : decision.message.replaceAll("[\t\r\n]", " ");
+					out.write(entry.getKey() + "\t" + decision.granted + "\t" + decision.decided + "\t" + message + "\n");
+				}
+				out.flush();
+			}
+		});
+	}
+}
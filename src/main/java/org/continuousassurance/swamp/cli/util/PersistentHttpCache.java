@@ -0,0 +1,172 @@
+package org.continuousassurance.swamp.cli.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+import org.apache.http.HttpResponse;
+import org.apache.log4j.Logger;
+import org.continuousassurance.swamp.session.HttpCache;
+import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.JSONLibDecoder;
+import org.continuousassurance.swamp.session.util.SystemProperties;
+
+import net.sf.json.JSON;
+
+/**
+ * An {@link HttpCache} kept in the file {@link #FILE_NAME} in the SWAMP session directory, so the validators
+ * and bodies of one CLI invocation make the GETs of the next one conditional. The file is read when the cache
+ * is first used and written by {@link #save()}.
+ * <p>
+ * The file is ignored if it has another {@link #FORMAT_VERSION} or was written for another SWAMP host or user,
+ * see {@link SessionFiles}. As with any {@link HttpCache} the server decides whether an entry is still current, so an entry left
+ * by another process is never returned stale.
+ */
+public class PersistentHttpCache extends HttpCache {
+	public static final int MAGIC = 0x53574843; // SWHC
+	public static final int FORMAT_VERSION = 1;
+	public static final String FILE_NAME = "http-cache.bin";
+
+	protected static final Logger LOGGER = Logger.getLogger(PersistentHttpCache.class);
+	protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+	File file;
+	Session session;
+	boolean loaded = false;
+	boolean dirty = false;
+
+	public PersistentHttpCache(File dir, Session session) {
+		this(dir, session, SystemProperties.getInt(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES));
+	}
+
+	public PersistentHttpCache(File dir, Session session, int maxEntries) {
+		super(maxEntries);
+		this.file = dir == null ? null : new File(dir, FILE_NAME);
+		this.session = session;
+	}
+
+	public Session getSession() {
+		return session;
+	}
+
+	@Override
+	public synchronized Entry get(String url) {
+		load();
+		return super.get(url);
+	}
+
+	@Override
+	public synchronized void remove(String url) {
+		load();
+		if (entries.containsKey(url)) {
+			super.remove(url);
+			dirty = true;
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		load();
+		if (!entries.isEmpty()) {
+			super.clear();
+			dirty = true;
+		}
+	}
+
+	@Override
+	public synchronized int size() {
+		load();
+		return super.size();
+	}
+
+	@Override
+	public synchronized void put(String url, HttpResponse response, JSON json) {
+		load();
+		Entry old = entries.get(url);
+		super.put(url, response, json);
+		if (old != entries.get(url)) {
+			dirty = true;
+		}
+	}
+
+	protected void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (!isEnabled() || file == null || !file.isFile()) {
+			return;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !SessionFiles.getOwner(session).equals(in.readUTF())) {
+				return;
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String url = in.readUTF();
+				String etag = readString(in);
+				String lastModified = readString(in);
+				byte[] body = new byte[in.readInt()];
+				in.readFully(body);
+				JSON json = JSONLibDecoder.toJSON(new String(body, UTF8));
+				if (json != null) {
+					entries.put(url, new Entry(etag, lastModified, json));
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// a partial cache is as good as any, the server validates every entry
+			LOGGER.debug("Ignoring unreadable HTTP cache " + file, e);
+		} finally {
+			SessionFiles.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Writes the cache if anything changed since it was read. If that fails, the next invocation just makes
+	 * unconditional requests.
+	 */
+	public synchronized void save() {
+		if (!dirty || file == null) {
+			return;
+		}
+		dirty = !SessionFiles.replace(file, new SessionFiles.Content() {
+			@Override
+			public void writeTo(OutputStream stream) throws IOException {
+				DataOutputStream out = new DataOutputStream(stream);
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(SessionFiles.getOwner(session));
+				out.writeInt(entries.size());
+				// least recently used first, so reading them back in order restores the order
+				for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+					out.writeUTF(entry.getKey());
+					writeString(out, entry.getValue().getETag());
+					writeString(out, entry.getValue().getLastModified());
+					byte[] body = entry.getValue().getJSON().toString().getBytes(UTF8);
+					out.writeInt(body.length);
+					out.write(body);
+				}
+				out.flush();
+			}
+		});
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	static void writeString(DataOutputStream out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package org.continuousassurance.swamp.cli.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.continuousassurance.swamp.session.util.SystemProperties;
+
+/**
+ * An in-memory cache of per-project lookups (e.g. the packages of a project), so that going back and forth
+ * between projects does not fetch everything again each time. The project UUID may be null, meaning all
+ * projects.
+ * <p>
+ * At most {@link #getMaxEntries()} projects are kept, the least recently used being dropped first, and an
+ * entry older than the TTL is fetched again. Defaults come from the system properties
+ * {@link #SIZE_PROPERTY} and {@link #TTL_PROPERTY} (in ms.). Hits and misses are counted.
+ *
+ * @param <V> what is cached for each project
+ */
+public class ProjectCache<V> {
+	public static final String SIZE_PROPERTY = "swamp-project-cache-size";
+	public static final String TTL_PROPERTY = "swamp-project-cache-ttl";
+	public static final int DEFAULT_SIZE = 16;
+	public static final long DEFAULT_TTL = 10L * 60L * 1000L; // in ms.
+
+	/* stands in for a null project UUID */
+	static final String ALL_PROJECTS = "";
+
+	static class Entry<V> {
+		V value;
+		long created = System.currentTimeMillis();
+
+		Entry(V value) {
+			this.value = value;
+		}
+	}
+
+	String name;
+	int maxEntries;
+	long ttl;
+	long hits = 0;
+	long misses = 0;
+	Map<String, Entry<V>> entries;
+
+	/**
+	 * @param name used in {@link #toString()}, e.g. "packages"
+	 */
+	public ProjectCache(String name) {
+		this(name, SystemProperties.getInt(SIZE_PROPERTY, DEFAULT_SIZE), SystemProperties.getLong(TTL_PROPERTY, DEFAULT_TTL));
+	}
+
+	public ProjectCache(String name, int maxEntries, long ttl) {
+		this.name = name;
+		this.maxEntries = Math.max(0, maxEntries);
+		this.ttl = ttl;
+		entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+				return ProjectCache.this.maxEntries < size();
+			}
+		};
+	}
+
+	static String key(String projectUuid) {
+		return projectUuid == null ? ALL_PROJECTS : projectUuid;
+	}
+
+	/**
+	 * Returns what is cached for the project, or null (a miss) if nothing is or it has expired.
+	 *
+	 * @param projectUuid
+	 * @return
+	 */
+	public synchronized V get(String projectUuid) {
+		String key = key(projectUuid);
+		Entry<V> entry = entries.get(key);
+		if (entry != null && 0 < ttl && ttl < System.currentTimeMillis() - entry.created) {
+			entries.remove(key);
+			entry = null;
+		}
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.value;
+	}
+
+	public synchronized void put(String projectUuid, V value) {
+		if (maxEntries == 0 || value == null) {
+			return;
+		}
+		entries.put(key(projectUuid), new Entry<V>(value));
+	}
+
+	public synchronized void remove(String projectUuid) {
+		entries.remove(key(projectUuid));
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Everything currently cached, e.g. to remove a deleted item from all of them.
+	 *
+	 * @return
+	 */
+	public synchronized List<V> values() {
+		List<V> list = new ArrayList<V>(entries.size());
+		for (Entry<V> entry : entries.values()) {
+			list.add(entry.value);
+		}
+		return list;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getTTL() {
+		return ttl;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return name + " cache: hits=" + hits + " misses=" + misses + " projects=" + entries.size() + "/" + maxEntries;
+	}
+}
@@ -0,0 +1,108 @@
+package org.continuousassurance.swamp.cli.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.log4j.Logger;
+import org.continuousassurance.swamp.session.Session;
+
+/**
+ * What the files the CLI keeps in the SWAMP session directory ({@link CatalogCache}, {@link UuidIndex},
+ * {@link PermissionCache}, {@link PersistentHttpCache} and {@link AssessmentLedger}) have in common.
+ * <p>
+ * Each file records the SWAMP host and user it was written for, its owner, since what it holds is only
+ * meaningful on that server and only visible to that user; a file with another owner is ignored. Everything
+ * in these files can be fetched from SWAMP again, so failing to read or write one is never an error.
+ */
+public class SessionFiles {
+	protected static final Logger LOGGER = Logger.getLogger(SessionFiles.class);
+
+	/**
+	 * Writes the contents of a file.
+	 */
+	public interface Content {
+		void writeTo(OutputStream out) throws IOException;
+	}
+
+	public static String getOwner(Session session) {
+		return session.getHost() + " " + session.getUserUID();
+	}
+
+	/**
+	 * The first line of a text file.
+	 *
+	 * @param session
+	 * @return
+	 */
+	public static String getHeader(Session session) {
+		return "# " + getOwner(session);
+	}
+
+	/**
+	 * Makes a file readable by the user only.
+	 *
+	 * @param file
+	 */
+	public static void setOwnerOnly(File file) {
+		file.setReadable(false, false);
+		file.setReadable(true, true);
+	}
+
+	/**
+	 * Replaces the file with what the content writes. It is written to a temporary file that is then renamed
+	 * over the file, atomically where the file system allows it, so processes running at the same time see
+	 * either the old or the new file and never part of one. A failure is logged.
+	 *
+	 * @param file
+	 * @param content
+	 * @return true if the file was replaced
+	 */
+	public static boolean replace(File file, Content content) {
+		File dir = file.getParentFile();
+		File temp = null;
+		OutputStream out = null;
+		try {
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				return false;
+			}
+			temp = File.createTempFile(file.getName(), ".tmp", dir);
+			setOwnerOnly(temp);
+			out = new BufferedOutputStream(new FileOutputStream(temp));
+			content.writeTo(out);
+			out.close();
+			out = null;
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException x) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			temp = null;
+			return true;
+		} catch (IOException e) {
+			LOGGER.debug("Could not write " + file, e);
+			return false;
+		} finally {
+			closeQuietly(out);
+			if (temp != null) {
+				temp.delete();
+			}
+		}
+	}
+
+	public static void closeQuietly(Closeable c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (IOException e) {
+				// nothing to do
+			}
+		}
+	}
+}
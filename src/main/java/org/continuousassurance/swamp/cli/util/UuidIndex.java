@@ -0,0 +1,184 @@
+package org.continuousassurance.swamp.cli.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.util.SystemProperties;
+
+/**
+ * Remembers which project each assessment run and assessment result belongs to, so that looking one up by
+ * UUID alone needs the records of that one project rather than those of every project. It is filled from
+ * whatever the CLI lists or submits and kept in the file {@link #FILE_NAME} in the SWAMP session directory,
+ * one <code>uuid type project-uuid</code> line per entry.
+ * <p>
+ * An entry is only a hint: a caller that does not find the UUID in the indexed project drops the entry and
+ * searches everywhere. The file is ignored if written for another SWAMP host or user, see {@link SessionFiles}. At most
+ * {@link #getMaxEntries()} UUIDs are kept, the least recently used being dropped first; the maximum may be set
+ * with the system property {@link #MAX_ENTRIES_PROPERTY}, and 0 turns the index off.
+ */
+public class UuidIndex {
+	public static final String MAX_ENTRIES_PROPERTY = "swamp-uuid-index-size";
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	public static final String FILE_NAME = "uuid-index.txt";
+
+	protected static final Logger LOGGER = Logger.getLogger(UuidIndex.class);
+	protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+	public enum Type {
+		ASSESSMENT_RUN, ASSESSMENT_RESULT
+	}
+
+	File file;
+	Session session;
+	int maxEntries;
+	boolean loaded = false;
+	boolean dirty = false;
+	Map<String, String> entries; // "type uuid" -> project uuid
+
+	public UuidIndex(File dir, Session session) {
+		this(dir, session, SystemProperties.getInt(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES));
+	}
+
+	public UuidIndex(File dir, Session session, int maxEntries) {
+		this.file = dir == null ? null : new File(dir, FILE_NAME);
+		this.session = session;
+		this.maxEntries = Math.max(0, maxEntries);
+		entries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return UuidIndex.this.maxEntries < size();
+			}
+		};
+	}
+
+	public Session getSession() {
+		return session;
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public boolean isEnabled() {
+		return 0 < maxEntries;
+	}
+
+	static String key(Type type, String uuid) {
+		return type.name() + " " + uuid;
+	}
+
+	/**
+	 * Returns the UUID of the project the entity was last seen in, or null if it is not indexed.
+	 *
+	 * @param type
+	 * @param uuid
+	 * @return
+	 */
+	public synchronized String getProjectUuid(Type type, String uuid) {
+		if (!isEnabled() || uuid == null) {
+			return null;
+		}
+		load();
+		return entries.get(key(type, uuid));
+	}
+
+	/**
+	 * Indexes an entity. Call {@link #save()} to keep it.
+	 *
+	 * @param type
+	 * @param uuid
+	 * @param projectUuid
+	 */
+	public synchronized void put(Type type, String uuid, String projectUuid) {
+		if (!isEnabled() || uuid == null || projectUuid == null) {
+			return;
+		}
+		load();
+		String old = entries.put(key(type, uuid), projectUuid);
+		if (!projectUuid.equals(old)) {
+			dirty = true;
+		}
+	}
+
+	public synchronized void remove(Type type, String uuid) {
+		if (!isEnabled() || uuid == null) {
+			return;
+		}
+		load();
+		if (entries.remove(key(type, uuid)) != null) {
+			dirty = true;
+		}
+	}
+
+	public synchronized int size() {
+		load();
+		return entries.size();
+	}
+
+	protected void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (file == null || !file.isFile()) {
+			return;
+		}
+		BufferedReader in = null;
+		try {
+			in = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+			if (!SessionFiles.getHeader(session).equals(in.readLine())) {
+				return;
+			}
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.split(" ");
+				if (fields.length != 3) {
+					continue;
+				}
+				try {
+					entries.put(key(Type.valueOf(fields[1]), fields[0]), fields[2]);
+				} catch (IllegalArgumentException e) {
+					// an entity type this version does not know, skip it
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Ignoring unreadable UUID index " + file, e);
+		} finally {
+			SessionFiles.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Writes the index if anything changed since it was read. If that fails, lookups just go back to
+	 * searching every project.
+	 */
+	public synchronized void save() {
+		if (!dirty || file == null) {
+			return;
+		}
+		dirty = !SessionFiles.replace(file, new SessionFiles.Content() {
+			@Override
+			public void writeTo(OutputStream stream) throws IOException {
+				Writer out = new BufferedWriter(new OutputStreamWriter(stream, UTF8));
+				out.write(SessionFiles.getHeader(session) + "\n");
+				for (Map.Entry<String, String> entry : entries.entrySet()) {
+					String[] type_uuid = entry.getKey().split(" ");
+					out.write(type_uuid[1] + " " + type_uuid[0] + " " + entry.getValue() + "\n");
+				}
+				out.flush();
+			}
+		});
+	}
+}
@@ -0,0 +1,139 @@
+package org.continuousassurance.swamp.session;
+
+import net.sf.json.JSON;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.continuousassurance.swamp.session.util.SystemProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the validators (ETag and Last-Modified) and decoded body of GET responses, so that the next GET of
+ * the same URL can be sent as a conditional request and a 304 answered from here. Every request still goes to
+ * the server, which decides whether what is cached is current, so nothing stale is ever returned.
+ * <p>Only 200 responses that carry a validator and do not say <code>Cache-Control: no-store</code> are kept.
+ * The cache holds at most {@link #getMaxEntries()} URLs, dropping the least recently used. The maximum may be
+ * set with the system property {@link #MAX_ENTRIES_PROPERTY}, and 0 turns caching off.</p>
+ * <p>The JSON handed back on a hit is the cached object itself, so it must be treated as read only.</p>
+ * <p>This cache lives as long as the client. Subclasses may keep it longer, e.g. the CLI keeps it in the
+ * session directory between invocations.</p>
+ */
+public class HttpCache {
+    public static final String MAX_ENTRIES_PROPERTY = "swamp-http-cache-size";
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    public static class Entry {
+        String etag;
+        String lastModified;
+        JSON json;
+
+        public Entry(String etag, String lastModified, JSON json) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.json = json;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public JSON getJSON() {
+            return json;
+        }
+    }
+
+    protected int maxEntries;
+    protected Map<String, Entry> entries; // in order of use, the least recently used first
+
+    public HttpCache() {
+        this(SystemProperties.getInt(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES));
+    }
+
+    public HttpCache(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return HttpCache.this.maxEntries < size();
+            }
+        };
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public boolean isEnabled() {
+        return 0 < maxEntries;
+    }
+
+    public synchronized Entry get(String url) {
+        return entries.get(url);
+    }
+
+    public synchronized void remove(String url) {
+        entries.remove(url);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Makes the request conditional on the cached entry still being current.
+     *
+     * @param request
+     * @param entry
+     */
+    public void addValidators(HttpRequestBase request, Entry entry) {
+        if (entry.etag != null) {
+            request.setHeader("If-None-Match", entry.etag);
+        }
+        if (entry.lastModified != null) {
+            request.setHeader("If-Modified-Since", entry.lastModified);
+        }
+    }
+
+    /**
+     * Caches the decoded body of the response if it is a 200 with a validator. Otherwise any entry for the URL
+     * is dropped, since the server no longer vouches for it.
+     *
+     * @param url
+     * @param response
+     * @param json
+     */
+    public void put(String url, HttpResponse response, JSON json) {
+        if (!isEnabled()) {
+            return;
+        }
+        String etag = getValue(response, "ETag");
+        String lastModified = getValue(response, "Last-Modified");
+        String cacheControl = getValue(response, "Cache-Control");
+        if (json == null
+                || response.getStatusLine().getStatusCode() != HttpStatus.SC_OK
+                || (etag == null && lastModified == null)
+                || (cacheControl != null && cacheControl.toLowerCase().contains("no-store"))) {
+            remove(url);
+            return;
+        }
+        synchronized (this) {
+            entries.put(url, new Entry(etag, lastModified, json));
+        }
+    }
+
+    protected String getValue(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+}
@@ -5,6 +5,9 @@ import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import org.apache.http.cookie.Cookie;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
 
@@ -13,11 +16,13 @@ import java.util.List;
  * <p>Created by Jeff Gaynor<br>
  * on 10/8/14 at  11:24 AM
  */
-public class MyResponse {
+public class MyResponse implements Closeable {
     public JSONObject json;
     public JSONArray jsonArray;
     public List<Cookie> cookies;
     public OutputStream outputStream;
+    public InputStream inputStream;
+    Closeable onClose;
 
    public boolean hasJSON(){return json != null;}
 
@@ -31,6 +36,20 @@ public class MyResponse {
 
     int httpResponseCode = 0;
 
+    long contentLength = -1L;
+
+    /**
+     * The length of the body of a streaming response, or -1 if the server did not say.
+     * @return
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public void setContentLength(long contentLength) {
+        this.contentLength = contentLength;
+    }
+
     public MyResponse(OutputStream outputStream, List<Cookie> cookies) {
         this.outputStream = outputStream;
         this.cookies = cookies;
@@ -59,4 +78,55 @@ public class MyResponse {
     public void setOutputStream(OutputStream outputStream) {
         this.outputStream = outputStream;
     }
+
+    /**
+     * A streaming response. The body is read straight off the connection with {@link #getInputStream()}
+     * rather than being buffered, and the connection is only released when {@link #close()} is called, so
+     * callers must always close this.
+     *
+     * @param inputStream
+     * @param cookies
+     * @param onClose     invoked once when this response is closed.
+     */
+    public MyResponse(InputStream inputStream, List<Cookie> cookies, Closeable onClose) {
+        this.inputStream = inputStream;
+        this.cookies = cookies;
+        this.onClose = onClose;
+        this.streamable = true;
+    }
+
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * Copies the body of a streaming response to the given stream, which is not closed. Returns the number
+     * of bytes written.
+     *
+     * @param out
+     * @return
+     * @throws IOException
+     */
+    public long writeTo(OutputStream out) throws IOException {
+        if (inputStream == null) {
+            return 0L;
+        }
+        byte[] buffer = new byte[8192];
+        long count = 0L;
+        int n;
+        while ((n = inputStream.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+            count += n;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (onClose != null) {
+            Closeable c = onClose;
+            onClose = null;
+            c.close();
+        }
+    }
 }
@@ -0,0 +1,224 @@
+package org.continuousassurance.swamp.session;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.continuousassurance.swamp.session.util.SystemProperties;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Decides whether a failed request is tried again and how long to wait first. A request is retried on
+ * <ul>
+ *     <li>a failure to connect. The request never reached the server, so this is always safe.</li>
+ *     <li>a 429, 502, 503 or 504 status. A Retry-After header is honored, up to {@link #getMaxRetryAfter()}.</li>
+ *     <li>a timeout or dropped connection once the request was sent, but only if the method is idempotent.</li>
+ * </ul>
+ * Failures to connect are retried for any method. Otherwise GET, HEAD, OPTIONS and DELETE requests are
+ * retried automatically, and anything else (e.g. a POST to assessment_runs, which would start a second
+ * assessment if the first one went through) only if the caller opts in for that call, or for every call with
+ * {@link #setRetryNonIdempotent(boolean)}.
+ * <p>The wait before attempt n+1 is a random time up to <code>min(maxDelay, baseDelay * 2<sup>n-1</sup>)</code>
+ * ("full jitter"), so that many clients failing at once do not all come back at once.</p>
+ * <p>Defaults may be set with the system properties {@link #MAX_ATTEMPTS_PROPERTY},
+ * {@link #BASE_DELAY_PROPERTY}, {@link #MAX_DELAY_PROPERTY} and {@link #RETRY_NON_IDEMPOTENT_PROPERTY}.</p>
+ */
+public class RetryPolicy {
+    public static final String MAX_ATTEMPTS_PROPERTY = "swamp-retry-max-attempts";
+    public static final String BASE_DELAY_PROPERTY = "swamp-retry-base-delay";
+    public static final String MAX_DELAY_PROPERTY = "swamp-retry-max-delay";
+    public static final String RETRY_NON_IDEMPOTENT_PROPERTY = "swamp-retry-non-idempotent";
+    public static final int DEFAULT_MAX_ATTEMPTS = 4;
+    public static final long DEFAULT_BASE_DELAY = 500L; // in ms.
+    public static final long DEFAULT_MAX_DELAY = 30000L; // in ms.
+    public static final long DEFAULT_MAX_RETRY_AFTER = 120000L; // in ms.
+
+    /**
+     * A policy that never retries.
+     */
+    public static final RetryPolicy NO_RETRY = new RetryPolicy(1, 0L, 0L);
+
+    int maxAttempts;
+    long baseDelay;
+    long maxDelay;
+    long maxRetryAfter = DEFAULT_MAX_RETRY_AFTER;
+    boolean retryNonIdempotent;
+    Random random = new Random();
+
+    public RetryPolicy() {
+        this(SystemProperties.getInt(MAX_ATTEMPTS_PROPERTY, DEFAULT_MAX_ATTEMPTS),
+                SystemProperties.getLong(BASE_DELAY_PROPERTY, DEFAULT_BASE_DELAY),
+                SystemProperties.getLong(MAX_DELAY_PROPERTY, DEFAULT_MAX_DELAY));
+        retryNonIdempotent = Boolean.parseBoolean(System.getProperty(RETRY_NON_IDEMPOTENT_PROPERTY));
+    }
+
+    /**
+     * @param maxAttempts total number of tries, so 1 means never retry.
+     * @param baseDelay   in ms.
+     * @param maxDelay    in ms.
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    public void setBaseDelay(long baseDelay) {
+        this.baseDelay = baseDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * The longest Retry-After the server may ask for. A longer one is not waited for and the request fails.
+     *
+     * @return
+     */
+    public long getMaxRetryAfter() {
+        return maxRetryAfter;
+    }
+
+    public void setMaxRetryAfter(long maxRetryAfter) {
+        this.maxRetryAfter = maxRetryAfter;
+    }
+
+    public boolean isRetryNonIdempotent() {
+        return retryNonIdempotent;
+    }
+
+    public void setRetryNonIdempotent(boolean retryNonIdempotent) {
+        this.retryNonIdempotent = retryNonIdempotent;
+    }
+
+    public boolean isIdempotent(String method) {
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method) || "DELETE".equals(method);
+    }
+
+    /**
+     * Whether a request of this kind may be retried after it was sent, i.e. on a retryable status or a
+     * failure once connected. See {@link #isRetryable(IOException, boolean)} for failures to connect.
+     *
+     * @param method
+     * @param optIn  true if the caller has said this particular request is safe to repeat.
+     * @return
+     */
+    public boolean isRetryable(String method, boolean optIn) {
+        return 1 < maxAttempts && (optIn || retryNonIdempotent || isIdempotent(method));
+    }
+
+    public boolean isRetryable(int statusCode) {
+        return statusCode == 429 || statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    /**
+     * Whether the exception is worth another try.
+     *
+     * @param e
+     * @param idempotent if false, only failures where the request cannot have reached the server count.
+     * @return
+     */
+    public boolean isRetryable(IOException e, boolean idempotent) {
+        if (e instanceof ConnectException || e instanceof ConnectTimeoutException) {
+            return true;
+        }
+        if (!idempotent) {
+            return false;
+        }
+        return e instanceof NoHttpResponseException
+                || e instanceof SocketTimeoutException
+                || e instanceof SocketException;
+    }
+
+    /**
+     * How long to wait (in ms.) before the next attempt. Returns -1 if the server asked for a longer wait than
+     * {@link #getMaxRetryAfter()}, which means give up.
+     *
+     * @param attempt  the number of the attempt that just failed, starting at 1.
+     * @param response the failed response or null if there was none.
+     * @return
+     */
+    public long getDelay(int attempt, HttpResponse response) {
+        long cap = baseDelay << Math.min(attempt - 1, 30);
+        if (cap <= 0 || maxDelay < cap) {
+            cap = maxDelay;
+        }
+        long delay;
+        synchronized (random) {
+            delay = cap <= 0 ? 0L : (long) (random.nextDouble() * cap);
+        }
+        long retryAfter = getRetryAfter(response);
+        if (maxRetryAfter < retryAfter) {
+            return -1L;
+        }
+        return Math.max(delay, retryAfter);
+    }
+
+    /**
+     * The wait the server asked for in the Retry-After header (either seconds or an HTTP date), in ms. or 0
+     * if there is none.
+     *
+     * @param response
+     * @return
+     */
+    protected long getRetryAfter(HttpResponse response) {
+        if (response == null) {
+            return 0L;
+        }
+        Header header = response.getFirstHeader("Retry-After");
+        if (header == null || header.getValue() == null) {
+            return 0L;
+        }
+        String value = header.getValue().trim();
+        try {
+            return Math.max(0L, Long.parseLong(value) * 1000L);
+        } catch (NumberFormatException x) {
+            Date date = DateUtils.parseDate(value);
+            return date == null ? 0L : Math.max(0L, date.getTime() - System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Waits for the given time. An interrupt ends the wait with an {@link InterruptedIOException}, so it
+     * surfaces like any other failed request.
+     *
+     * @param delay
+     * @throws InterruptedIOException
+     */
+    public void sleep(long delay) throws InterruptedIOException {
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+}
@@ -8,7 +8,6 @@ import edu.uiuc.ncsa.security.util.ssl.SSLConfiguration;
 import edu.uiuc.ncsa.security.util.ssl.VerifyingHTTPClientFactory;
 import edu.uiuc.ncsa.security.util.ssl.VerifyingHTTPClientFactory.X509TrustManagerFacade;
 import net.sf.json.JSON;
-import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import org.apache.http.*;
 import org.apache.http.auth.AuthScope;
@@ -21,6 +20,11 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.*;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.cookie.Cookie;
@@ -32,21 +36,40 @@ import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 import org.continuousassurance.swamp.cli.Cli;
-import org.continuousassurance.swamp.exceptions.NoJSONReturnedException;
 import org.continuousassurance.swamp.exceptions.SWAMPException;
+import org.continuousassurance.swamp.session.metrics.EndpointMetrics;
+import org.continuousassurance.swamp.session.metrics.MeteredEntity;
+import org.continuousassurance.swamp.session.metrics.MetricsRegistry;
+import org.continuousassurance.swamp.session.util.JSONLibDecoder;
 import org.continuousassurance.swamp.session.util.Proxy;
+import org.continuousassurance.swamp.session.util.ResponseDecoder;
+import org.continuousassurance.swamp.session.util.StreamingJSONDecoder;
+import org.continuousassurance.swamp.session.util.SystemProperties;
+import org.continuousassurance.swamp.session.transport.ApacheHttpTransport;
+import org.continuousassurance.swamp.session.transport.HttpTransport;
+import org.continuousassurance.swamp.session.transport.URLConnectionTransport;
 
 import java.io.*;
 import java.net.URI;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.GeneralSecurityException;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
@@ -56,6 +79,13 @@ import java.security.cert.CertificateException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
@@ -69,12 +99,35 @@ import javax.net.ssl.SSLHandshakeException;
  * <p>Created by Jeff Gaynor<br>
  * on 10/2/14 at  1:38 PM
  */
-public class SWAMPHttpClient implements Serializable {
-    
+public class SWAMPHttpClient implements Serializable, Closeable {
+    // the value computed for the released class, so sessions saved by older versions still load
+    private static final long serialVersionUID = -8942370122729950554L;
+
     public static final int HTTP_STATUS_OK = HttpStatus.SC_OK;
     public static final String ENCODING = "UTF-8";
-    
+
+    /*
+      Defaults for the shared connection pool. Each of these may be overridden with the system property
+      of the same name, e.g. -Dswamp-max-connections=50, or with the setters below before the first request.
+      They are not saved with the session, so the properties of the current invocation always apply.
+     */
+    public static final String MAX_CONNECTIONS_PROPERTY = "swamp-max-connections";
+    public static final String MAX_CONNECTIONS_PER_ROUTE_PROPERTY = "swamp-max-connections-per-route";
+    public static final String KEEP_ALIVE_PROPERTY = "swamp-keep-alive";
+    public static final String IDLE_TIMEOUT_PROPERTY = "swamp-idle-timeout";
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+    public static final long DEFAULT_KEEP_ALIVE = 30000L; // in ms.
+    public static final long DEFAULT_IDLE_TIMEOUT = 60000L; // in ms.
+
     transient private HttpClientContext context;
+    transient private PoolingHttpClientConnectionManager connectionManager;
+    transient private CloseableHttpClient httpClient;
+
+    transient private Integer maxConnections;
+    transient private Integer maxConnectionsPerRoute;
+    transient private Long keepAlive;
+    transient private Long idleTimeout;
     private SSLConfiguration sslConfiguration;
     //private String host;
     private Proxy proxy = null;
@@ -91,7 +144,223 @@ public class SWAMPHttpClient implements Serializable {
     protected SSLConfiguration getSSLConfiguration() {
         return sslConfiguration;
     }
-    
+
+    public int getMaxConnections() {
+        if (maxConnections == null) {
+            maxConnections = SystemProperties.getInt(MAX_CONNECTIONS_PROPERTY, DEFAULT_MAX_CONNECTIONS);
+        }
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        if (maxConnectionsPerRoute == null) {
+            maxConnectionsPerRoute = SystemProperties.getInt(MAX_CONNECTIONS_PER_ROUTE_PROPERTY, DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+        }
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * How long (in ms.) an idle connection is kept open if the server does not send a Keep-Alive header.
+     *
+     * @return
+     */
+    public long getKeepAlive() {
+        if (keepAlive == null) {
+            keepAlive = SystemProperties.getLong(KEEP_ALIVE_PROPERTY, DEFAULT_KEEP_ALIVE);
+        }
+        return keepAlive;
+    }
+
+    public void setKeepAlive(long keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * How long (in ms.) a connection may sit unused in the pool before the evictor closes it.
+     *
+     * @return
+     */
+    public long getIdleTimeout() {
+        if (idleTimeout == null) {
+            idleTimeout = SystemProperties.getLong(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT);
+        }
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Builds the SSL context from the configured keystore, or from the default java trust store if there is none.
+     *
+     * @return
+     */
+    protected SSLContext getSSLContext() {
+        SSLContextBuilder ssl_context_builder  = SSLContextBuilder.create();
+        ssl_context_builder.setSecureRandom(new java.security.SecureRandom());
+
+        if (getSSLConfiguration().getKeystore() != null) {
+            try {
+                ssl_context_builder.loadTrustMaterial(new File (getSSLConfiguration().getKeystore()),
+                        getSSLConfiguration().getKeystorePasswordChars());
+            } catch (NoSuchAlgorithmException | KeyStoreException | CertificateException | IOException e) {
+                // TODO Auto-generated catch block
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        try {
+            return ssl_context_builder.build();
+        } catch (KeyManagementException | NoSuchAlgorithmException e) {
+            // TODO Auto-generated catch block
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Returns the client shared by every request made through this object. It is created on first use and
+     * is backed by a {@link PoolingHttpClientConnectionManager}, so connections (and their TLS sessions) are
+     * kept alive and reused between calls rather than being set up again for each one. The client is
+     * thread safe.
+     *
+     * @return
+     */
+    protected synchronized CloseableHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = createHttpClient();
+        }
+        return httpClient;
+    }
+
+    /**
+     * Selects the {@link HttpTransport}. Set it to {@link #TRANSPORT_URLCONNECTION} for the JDK's HttpURLConnection,
+     * otherwise the pooled Apache client is used.
+     */
+    public static final String TRANSPORT_PROPERTY = "swamp-http-transport";
+    public static final String TRANSPORT_APACHE = "apache";
+    public static final String TRANSPORT_URLCONNECTION = "urlconnection";
+
+    transient private HttpTransport transport;
+
+    /**
+     * The transport every request goes through. Unless one has been set, this is chosen by the
+     * {@link #TRANSPORT_PROPERTY} system property, defaulting to the pooled Apache client from {@link #getHttpClient()}.
+     *
+     * @return
+     */
+    public synchronized HttpTransport getTransport() {
+        if (transport == null) {
+            if (TRANSPORT_URLCONNECTION.equalsIgnoreCase(System.getProperty(TRANSPORT_PROPERTY))) {
+                transport = new URLConnectionTransport(getSSLContext(),
+                        new String[]{getSSLConfiguration().getTlsVersion()},
+                        proxy);
+            } else {
+                transport = new ApacheHttpTransport(getHttpClient());
+            }
+        }
+        return transport;
+    }
+
+    public synchronized void setTransport(HttpTransport transport) {
+        this.transport = transport;
+    }
+
+    protected CloseableHttpClient createHttpClient() {
+        SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(
+                getSSLContext(),
+                new String[] { getSSLConfiguration().getTlsVersion() },
+                null,
+                //new NoopHostnameVerifier());
+                SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", sslsf)
+                .build();
+        connectionManager = new PoolingHttpClientConnectionManager(registry);
+        connectionManager.setMaxTotal(getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(getMaxConnectionsPerRoute());
+
+        HttpClientBuilder http_client_builder = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+                    @Override
+                    public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                        // Honor the server's Keep-Alive header if there is one.
+                        long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                        return duration < 0 ? getKeepAlive() : duration;
+                    }
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(getIdleTimeout(), TimeUnit.MILLISECONDS)
+                // RetryPolicy decides what is retried, the client's own retries would multiply its attempts
+                .disableAutomaticRetries();
+
+        if (proxy.isConfigured()) {
+
+            http_client_builder.setProxy(new HttpHost(proxy.getHost(), proxy.getPort(), proxy.getScheme()));
+
+            if (proxy.getUsername() != null && proxy.getPassword() != null) {
+                CredentialsProvider credsProvider = new BasicCredentialsProvider();
+                credsProvider.setCredentials(
+                        new AuthScope(proxy.getHost(), proxy.getPort()),
+                        new UsernamePasswordCredentials(proxy.getUsername(), proxy.getPassword()));
+
+                http_client_builder = http_client_builder.setDefaultCredentialsProvider(credsProvider);
+            }
+        }
+
+        return http_client_builder.build();
+    }
+
+    /**
+     * Shuts down the shared client and closes all of its pooled connections. A later request will simply
+     * create a new one. The executor for asynchronous calls is shut down too, unless it was supplied with
+     * {@link #setExecutor(ExecutorService)}.
+     */
+    @Override
+    public synchronized void close() {
+        if (ownsExecutor && executor != null) {
+            executor.shutdown();
+            executor = null;
+            ownsExecutor = false;
+        }
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (IOException e) {
+                // nothing to do, the connections are going away regardless.
+            }
+            transport = null;
+        }
+        if (httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                // nothing to do, the connections are going away regardless.
+            }
+            httpClient = null;
+            connectionManager = null;
+        }
+    }
+
+    /**
+     * This is kept so existing code that pops clients from a pool keeps working. Every client it hands out is
+     * now the same shared, pooled client (see {@link #getHttpClient()}), so there is nothing to destroy.
+     *
+     * @param <T>
+     */
     public class MyPool<T extends HttpClient> extends Pool<T> implements Serializable {
         public MyPool() {
         }
@@ -112,58 +381,12 @@ public class SWAMPHttpClient implements Serializable {
         
 
         protected SSLContext getSSLContext() {
-            SSLContextBuilder ssl_context_builder  = SSLContextBuilder.create();
-            ssl_context_builder.setSecureRandom(new java.security.SecureRandom());
-            
-            if (getSSLConfiguration().getKeystore() != null) {
-                try {
-                    ssl_context_builder.loadTrustMaterial(new File (getSSLConfiguration().getKeystore()), 
-                            getSSLConfiguration().getKeystorePasswordChars());
-                } catch (NoSuchAlgorithmException | KeyStoreException | CertificateException | IOException e) {
-                    // TODO Auto-generated catch block
-                    e.printStackTrace();
-                    return null;
-                }
-            }
-            
-            try {
-                return ssl_context_builder.build();
-            } catch (KeyManagementException | NoSuchAlgorithmException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-                return null;
-            }
+            return SWAMPHttpClient.this.getSSLContext();
         }
         
         //@Override
         public T create() {
-
-            SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(
-                    getSSLContext(),
-                    new String[] { getSSLConfiguration().getTlsVersion() },
-                    null,
-                    //new NoopHostnameVerifier());
-                    SSLConnectionSocketFactory.getDefaultHostnameVerifier());
-
-            HttpClientBuilder http_client_builder = HttpClientBuilder.create()
-                    .setSSLSocketFactory(sslsf);
-            
-            if (proxy.isConfigured()) {
-
-                http_client_builder.setProxy(new HttpHost(proxy.getHost(), proxy.getPort(), proxy.getScheme()));
-
-                if (proxy.getUsername() != null && proxy.getPassword() != null) {
-                    CredentialsProvider credsProvider = new BasicCredentialsProvider();
-                    credsProvider.setCredentials(
-                            new AuthScope(proxy.getHost(), proxy.getPort()),
-                            new UsernamePasswordCredentials(proxy.getUsername(), proxy.getPassword()));
-
-                    http_client_builder = http_client_builder.setDefaultCredentialsProvider(credsProvider);
-                }
-            }
-            
-            return (T)http_client_builder.build();
-
+            return (T) getHttpClient();
         }
         
         /*
@@ -200,6 +423,7 @@ public class SWAMPHttpClient implements Serializable {
             sslConfiguration1.setKeystoreType("JKS");
         }
         this.sslConfiguration = sslConfiguration1;
+        this.proxy = new Proxy();
     }
 
 
@@ -207,7 +431,7 @@ public class SWAMPHttpClient implements Serializable {
         //this.host = host;
         this.sslConfiguration = sslConfiguration;
         if(proxy == null){
-        		proxy = new Proxy();
+            this.proxy = new Proxy();
         }else {
             this.proxy = proxy;
         }
@@ -317,6 +541,7 @@ public class SWAMPHttpClient implements Serializable {
         public static final int DO_POST = 10;
         public static final int DO_PUT = 100;
         public static final int DO_DELETE = 1000;
+        public static final int DO_HEAD = 10000;
         public void doStuff(String url, Map<String, Object> map, int action){
             if (map != null) {
                 nvp = convertMap(map);
@@ -335,6 +560,9 @@ public class SWAMPHttpClient implements Serializable {
                 case DO_DELETE:
                     request = new HttpDelete(parsedURI.getPath());
                     break;
+                case DO_HEAD:
+                    request = new HttpHead(parsedURI.getPath());
+                    break;
                 default:
                     throw new GeneralException("Error: unknown/unsupported HTTP method");
 
@@ -352,8 +580,28 @@ public class SWAMPHttpClient implements Serializable {
 
     }
 
+    transient private HttpCache httpCache;
+
+    /**
+     * The cache of validated GET responses used by {@link #rawGet(String, Map)}.
+     *
+     * @return
+     */
+    public synchronized HttpCache getHttpCache() {
+        if (httpCache == null) {
+            httpCache = new HttpCache();
+        }
+        return httpCache;
+    }
+
+    public synchronized void setHttpCache(HttpCache httpCache) {
+        this.httpCache = httpCache;
+    }
+
     /**
      * Returns the response as a stream in the {@link MyResponse} object;
+     * <p>Unless the response is streamable, the GET is made conditional on what is in the {@link HttpCache}
+     * and if the server answers 304 Not Modified the cached JSON is returned with a code of 200.</p>
      *
      * @param url
      * @param map
@@ -364,115 +612,507 @@ public class SWAMPHttpClient implements Serializable {
         //System.out.println("URL: " + url);
         
         Stuff stuff = new Stuff(url, map, Stuff.DO_GET);
-        HttpClient client = clientPool.pop();
+        HttpResponse response = null;
+        HttpCache cache = isStreamable ? null : getHttpCache();
+        HttpCache.Entry cached = cache == null || !cache.isEnabled() ? null : cache.get(url);
+        if (cached != null) {
+            cache.addValidators(stuff.request, cached);
+        }
         
         try {
-            HttpResponse response = client.execute(stuff.target, stuff.request, getContext());
+            response = execute(stuff);
             HttpEntity entity = response.getEntity();
             JSON json = null;
             List<Cookie> cookies = getContext().getCookieStore().getCookies();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            // We can consume the contents once. To get a string out of it,we have to construct one from the byte array.
-            entity.writeTo(baos);
-            String raw = new String(baos.toByteArray());
+            ByteArrayOutputStream baos = null;
+
+            if (cached != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                releaseConnection(response);
+                MyResponse myResponse = new MyResponse(cached.getJSON(), cookies);
+                myResponse.setHttpResponseCode(HttpStatus.SC_OK);
+                return myResponse;
+            }
 
             MyResponse myResponse = null;
             try {
-                json = toJSON(raw);
+                if (isStreamable) {
+                    // We can consume the contents once. To get a string out of it,we have to construct one from the byte array.
+                    baos = new ByteArrayOutputStream();
+                    entity.writeTo(baos);
+                    json = toJSON(baos.toString(ENCODING));
+                } else {
+                    json = decode(entity);
+                }
+            } catch (IOException e) {
+                throw e;
             } catch (Throwable t) {
                 // not an issue if it is not json
             }
             myResponse = new MyResponse(json, cookies);
             myResponse.setHttpResponseCode(response.getStatusLine().getStatusCode());
+            if (cache != null) {
+                cache.put(url, response, json);
+            }
 
             if (isStreamable) {
                 myResponse.setOutputStream(baos);
             }
-            releaseConnection(client, response);
+            releaseConnection(response);
             return myResponse;
 
         } catch (SSLHandshakeException e) {
-            Throwable ee = e.getCause();
-            
-            if (ee != null && ee.getClass() == sun.security.validator.ValidatorException.class) {
+            if (isCertificateFailure(e)) {
                 e.printStackTrace(); 
                 throw new GeneralException("Server may have a self-signed certificate", e);
             }
             
         } catch (IOException e) {
+            releaseConnection(response);
             e.printStackTrace(); 
             throw new GeneralException("Error invoking http client", e);
-        } finally {
-            clientPool.destroy(client);
         }
         return null;
     }
 
-    protected JSON toJSON(String raw) {
-        if (raw == null || raw.length() == 0) {
-            return null;
+    /**
+     * Returns the response with the body left on the connection, so large downloads (e.g. SCARF results) can
+     * be piped to a sink without holding them in memory. If the server answers with an error code or with
+     * a JSON document (which is how it reports that there is nothing to download) the body is read here
+     * and parsed as per {@link #rawGet(String, Map)} instead, and {@link MyResponse#isStreamable()} is false.
+     * <p>A streaming response holds a pooled connection until it is closed, so callers must close it.</p>
+     *
+     * @param url
+     * @param map
+     * @return
+     */
+    public MyResponse rawGetStream(String url, Map<String, Object> map) {
+        Stuff stuff = new Stuff(url, map, Stuff.DO_GET);
+        HttpResponse response = null;
+
+        try {
+            response = execute(stuff);
+            HttpEntity entity = response.getEntity();
+            List<Cookie> cookies = getContext().getCookieStore().getCookies();
+            int code = response.getStatusLine().getStatusCode();
+            MyResponse myResponse;
+
+            if (entity == null || !(code >= 200 && code <= 299) || isJSON(entity)) {
+                JSON json = null;
+                try {
+                    json = decode(entity);
+                } catch (Throwable t) {
+                    // not an issue if it is not json
+                }
+                releaseConnection(response);
+                myResponse = new MyResponse(json, cookies);
+            } else {
+                final HttpResponse liveResponse = response;
+                myResponse = new MyResponse(entity.getContent(), cookies, new Closeable() {
+                    @Override
+                    public void close() throws IOException {
+                        closeResponse(liveResponse);
+                    }
+                });
+                myResponse.setContentLength(entity.getContentLength());
+            }
+            myResponse.setHttpResponseCode(code);
+            return myResponse;
+        } catch (SSLHandshakeException e) {
+            releaseConnection(response);
+            if (isCertificateFailure(e)) {
+                throw new GeneralException("Server may have a self-signed certificate", e);
+            }
+            throw new GeneralException("Error invoking http client", e);
+        } catch (IOException e) {
+            releaseConnection(response);
+            throw new GeneralException("Error invoking http client", e);
         }
-        JSON json;
-        if (raw.charAt(0) == '[') {
-            json = JSONArray.fromObject(raw);
-        } else if (raw.charAt(0) == '{') {
-            json = JSONObject.fromObject(raw);
-        } else {
-            throw new NoJSONReturnedException(raw);
+    }
+
+    /**
+     * Issues a HEAD, so what a GET of the url would return can be looked at without transferring it. The
+     * response has no body. Its content length is -1 if the server did not say, and it is streamable
+     * unless a GET would return JSON, as per {@link #rawGetStream(String, Map)}.
+     *
+     * @param url
+     * @return
+     */
+    public MyResponse rawHead(String url) {
+        Stuff stuff = new Stuff(url, null, Stuff.DO_HEAD);
+        HttpResponse response = null;
+
+        try {
+            response = execute(stuff);
+            MyResponse myResponse = new MyResponse((JSON) null, getContext().getCookieStore().getCookies());
+            myResponse.setHttpResponseCode(response.getStatusLine().getStatusCode());
+            Header contentType = response.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+            myResponse.setStreamable(contentType == null
+                    || !contentType.getValue().toLowerCase().startsWith("application/json"));
+            Header contentLength = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+            if (contentLength != null) {
+                try {
+                    myResponse.setContentLength(Long.parseLong(contentLength.getValue().trim()));
+                } catch (NumberFormatException x) {
+                    // same as not saying
+                }
+            }
+            releaseConnection(response);
+            return myResponse;
+        } catch (SSLHandshakeException e) {
+            releaseConnection(response);
+            if (isCertificateFailure(e)) {
+                throw new GeneralException("Server may have a self-signed certificate", e);
+            }
+            throw new GeneralException("Error invoking http client", e);
+        } catch (IOException e) {
+            releaseConnection(response);
+            throw new GeneralException("Error invoking http client", e);
+        }
+    }
+
+    /**
+     * Whether the handshake failed because the server certificate could not be validated, e.g. it is
+     * self-signed. The validator exception is matched by name since it is internal to the JDK.
+     *
+     * @param e
+     * @return
+     */
+    protected static boolean isCertificateFailure(SSLHandshakeException e) {
+        Throwable cause = e.getCause();
+        return cause != null && "sun.security.validator.ValidatorException".equals(cause.getClass().getName());
+    }
+
+    protected boolean isJSON(HttpEntity entity) {
+        Header contentType = entity.getContentType();
+        return contentType != null && contentType.getValue().toLowerCase().startsWith("application/json");
+    }
+
+    /**
+     * Issues a GET and hands each element of the returned JSON array to the handler as soon as it is parsed,
+     * so a long list can be bound element by element without the whole array ever being in memory.
+     * A status other than 2xx results in an {@link HTTPException}.
+     *
+     * @param url
+     * @param map
+     * @param handler
+     */
+    public void rawGetEach(String url, Map<String, Object> map, StreamingJSONDecoder.ElementHandler handler) {
+        Stuff stuff = new Stuff(url, map, Stuff.DO_GET);
+        HttpResponse response = null;
+
+        try {
+            response = execute(stuff);
+            HttpEntity entity = response.getEntity();
+            int code = response.getStatusLine().getStatusCode();
+            if (!(code >= 200 && code <= 299)) {
+                throw new HTTPException(entity == null ? null : EntityUtils.toString(entity), code);
+            }
+            if (entity != null) {
+                long start = System.nanoTime();
+                STREAMING_DECODER.forEach(newReader(entity), handler);
+                recordDecode(entity, System.nanoTime() - start);
+            }
+        } catch (IOException e) {
+            throw new GeneralException("Error invoking http client", e);
+        } finally {
+            releaseConnection(response);
+        }
+    }
+
+    protected static final StreamingJSONDecoder STREAMING_DECODER = new StreamingJSONDecoder();
+
+    transient private ResponseDecoder responseDecoder;
+
+    /**
+     * The decoder used for every JSON response. Default is a {@link StreamingJSONDecoder}.
+     *
+     * @return
+     */
+    public ResponseDecoder getResponseDecoder() {
+        if (responseDecoder == null) {
+            responseDecoder = STREAMING_DECODER;
+        }
+        return responseDecoder;
+    }
+
+    public void setResponseDecoder(ResponseDecoder responseDecoder) {
+        this.responseDecoder = responseDecoder;
+    }
+
+    protected Reader newReader(HttpEntity entity) throws IOException {
+        Charset charset = ContentType.getOrDefault(entity).getCharset();
+        return new InputStreamReader(entity.getContent(), charset == null ? Charset.forName(ENCODING) : charset);
+    }
+
+    /**
+     * Decodes the body of the response directly from the connection using the current {@link ResponseDecoder}.
+     *
+     * @param entity
+     * @return
+     * @throws IOException
+     */
+    protected JSON decode(HttpEntity entity) throws IOException {
+        if (entity == null) {
+            return null;
         }
+        long start = System.nanoTime();
+        JSON json = getResponseDecoder().decode(newReader(entity));
+        recordDecode(entity, System.nanoTime() - start);
         return json;
     }
 
+    protected void recordDecode(HttpEntity entity, long nanos) {
+        if (entity instanceof MeteredEntity) {
+            ((MeteredEntity) entity).getMetrics().recordDecode(nanos);
+        }
+    }
+
+    protected JSON toJSON(String raw) {
+        return JSONLibDecoder.toJSON(raw);
+    }
+
     /**
      * The assumption is that this downloading a file from a server to the given targetFile. If
      * no target file is specified, a temporary one will be created. The file returned is either that
      * or the targetFile.
+     * <p>This resumes an earlier, interrupted download if one is found. See
+     * {@link #getFile(String, File, String, boolean)}.</p>
      *
      * @param url
      * @param targetDir
      * @return
      */
     public File getFile(String url, File targetDir, String targetName) {
-        Stuff stuff = new Stuff(url, null, Stuff.DO_GET);
-        stuff.request.setHeader("Accept", "application/json, text/javascript, /; q=0.01");
-        HttpResponse response = null;
+        return getFile(url, targetDir, targetName, true);
+    }
 
-        try {
-            if (targetDir == null) {
+    /**
+     * Size of each {@link FileChannel#transferFrom(ReadableByteChannel, long, long)} call when downloading.
+     */
+    public static final long DOWNLOAD_CHUNK_SIZE = 1024L * 1024L;
+    public static final String PARTIAL_DOWNLOAD_EXTENSION = ".part";
+
+    /**
+     * Downloads to <code>targetName.part</code> in the target directory, copying straight from the socket to
+     * the file channel, and then renames it to the target name (atomically where the file system allows it),
+     * so a file with the target name is always complete. If the download fails the partial file is kept and,
+     * if resume is true, the next call asks the server for just the remaining bytes with an HTTP Range
+     * request. Should the server ignore the range the whole file is downloaded again.
+     *
+     * @param url
+     * @param targetDir
+     * @param targetName
+     * @param resume     whether to continue from an existing partial file or start over.
+     * @return
+     */
+    public File getFile(String url, File targetDir, String targetName, boolean resume) {
+        if (targetDir == null) {
+            try {
                 targetDir = File.createTempFile("swamp-temp", "");
-                if (!targetDir.mkdirs()) {
-                    if (!targetDir.exists())
-                        throw new GeneralException("Unable to create a temporary directory for download");
+            } catch (IOException e) {
+                throw new GeneralException("Unable to create a temporary directory for download", e);
+            }
+            // createTempFile makes a file, which has to go before a directory can be made in its place.
+            targetDir.delete();
+            if (!targetDir.mkdirs()) {
+                if (!targetDir.exists())
+                    throw new GeneralException("Unable to create a temporary directory for download");
+            }
+        }
+        File partFile = new File(targetDir, targetName + PARTIAL_DOWNLOAD_EXTENSION);
+        RetryPolicy policy = getRetryPolicy();
+        for (int attempt = 1; ; attempt++) {
+            long before = resume && partFile.exists() ? partFile.length() : 0L;
+            try {
+                return download(url, targetDir, targetName, resume);
+            } catch (IOException e) {
+                // A download that dropped part way is picked up from the partial file, for as long as each
+                // attempt gets further than the last. Failures to get a response at all were already retried.
+                if (attempt < policy.getMaxAttempts() && before < partFile.length()) {
+                    resume = true;
+                    try {
+                        policy.sleep(policy.getDelay(attempt, null));
+                    } catch (InterruptedIOException x) {
+                        throw new GeneralException("Error invoking http client", e);
+                    }
+                    continue;
                 }
+                throw new GeneralException("Error invoking http client", e);
+            }
+        }
+    }
+
+    protected File download(String url, File targetDir, String targetName, boolean resume) throws IOException {
+        HttpResponse response = null;
+
+        try {
+            File targetFile = new File(targetDir, targetName);
+            File partFile = new File(targetDir, targetName + PARTIAL_DOWNLOAD_EXTENSION);
+            long offset = resume && partFile.exists() ? partFile.length() : 0L;
+
+            Stuff stuff = new Stuff(url, null, Stuff.DO_GET);
+            stuff.request.setHeader("Accept", "application/json, text/javascript, /; q=0.01");
+            if (0 < offset) {
+                stuff.request.setHeader("Range", "bytes=" + offset + "-");
+            }
+            response = execute(stuff);
+            int code = response.getStatusLine().getStatusCode();
+
+            if (code == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE && 0 < offset) {
+                // The partial file is not a prefix of what the server has now. Start over.
+                releaseConnection(response);
+                response = null;
+                partFile.delete();
+                return download(url, targetDir, targetName, false);
+            }
+            if (!(code >= 200 && code <= 299)) {
+                String body = response.getEntity() == null ? null : EntityUtils.toString(response.getEntity());
+                throw new HTTPException(body, code);
             }
-            HttpClient client = clientPool.pop();
 
-            response = client.execute(stuff.target, stuff.request, getContext());
             HttpEntity entity1 = response.getEntity();
 
             if (entity1 == null) {
-                releaseConnection(client, response);
                 return targetDir;
             }
+            // Only a 206 means the server honored the range. A 200 is the whole file.
+            boolean append = 0 < offset && code == HttpStatus.SC_PARTIAL_CONTENT;
 
-            InputStream is = entity1.getContent();
-            File targetFile = new File(targetDir, targetName);
-            FileOutputStream fos = new FileOutputStream(targetFile);
-            int inByte;
-            while ((inByte = is.read()) != -1) fos.write(inByte);
-            is.close();
-            fos.close();
-
-            releaseConnection(client, response);
+            FileChannel out = new FileOutputStream(partFile, append).getChannel();
+            ReadableByteChannel in = Channels.newChannel(entity1.getContent());
+            try {
+                long position = out.position();
+                long n;
+                while (0 < (n = out.transferFrom(in, position, DOWNLOAD_CHUNK_SIZE))) {
+                    position += n;
+                }
+                out.force(false);
+            } finally {
+                in.close();
+                out.close();
+            }
+            try {
+                Files.move(partFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException x) {
+                Files.move(partFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
             return targetFile;
-        } catch (IOException e) {
-            e.printStackTrace();     // TODO: don't print the stack trace
-            throw new GeneralException("Error invoking http client", e);
+        } finally {
+            releaseConnection(response);
+        }
+
+    }
+
+    transient private RetryPolicy retryPolicy;
+
+    public synchronized RetryPolicy getRetryPolicy() {
+        if (retryPolicy == null) {
+            retryPolicy = new RetryPolicy();
+        }
+        return retryPolicy;
+    }
+
+    public synchronized void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    transient private MetricsRegistry metrics;
+
+    /**
+     * Where requests are counted. Unless one has been set this is the shared {@link MetricsRegistry#getInstance()},
+     * which is also what the <code>--stats</code> option of the CLI and the JMX bean report.
+     *
+     * @return
+     */
+    public synchronized MetricsRegistry getMetrics() {
+        if (metrics == null) {
+            metrics = MetricsRegistry.getInstance();
         }
+        return metrics;
+    }
 
+    public synchronized void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    protected HttpResponse execute(Stuff stuff) throws IOException {
+        return execute(stuff, false);
+    }
+
+    /**
+     * Sends the request through the transport, retrying it as the {@link RetryPolicy} allows. A failure to
+     * connect is retried whatever the method, since the request never left. A response that is retried is
+     * released first. If the retries run out, the last response (or exception) is what the caller gets.
+     *
+     * @param stuff
+     * @param optIn true if the caller says this request is safe to send more than once even if its method is not.
+     * @return
+     * @throws IOException
+     */
+    protected HttpResponse execute(Stuff stuff, boolean optIn) throws IOException {
+        HttpTransport transport = getTransport();
+        RetryPolicy policy = getRetryPolicy();
+        String method = stuff.request.getMethod();
+        boolean idempotent = optIn || policy.isRetryNonIdempotent() || policy.isIdempotent(method);
+        boolean repeatable = isRepeatable(stuff.request);
+        boolean retryable = policy.isRetryable(method, optIn) && repeatable;
+        EndpointMetrics endpoint = getMetrics().getEndpoint(method, stuff.request.getURI().getPath());
+        long requestBytes = 0L;
+        if (stuff.request instanceof HttpEntityEnclosingRequest && ((HttpEntityEnclosingRequest) stuff.request).getEntity() != null) {
+            requestBytes = ((HttpEntityEnclosingRequest) stuff.request).getEntity().getContentLength();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            if (1 < attempt) {
+                endpoint.recordRetry();
+            }
+            HttpResponse response;
+            long start = System.nanoTime();
+            try {
+                response = transport.execute(stuff.target, stuff.request, newContext());
+            } catch (IOException e) {
+                endpoint.recordError();
+                // if the method is not idempotent, only connect failures pass isRetryable
+                if (!repeatable || policy.getMaxAttempts() <= attempt || !policy.isRetryable(e, idempotent)) {
+                    throw e;
+                }
+                policy.sleep(policy.getDelay(attempt, null));
+                stuff.request.reset();
+                continue;
+            }
+            int code = response.getStatusLine().getStatusCode();
+            endpoint.recordResponse(code, System.nanoTime() - start, requestBytes);
+            if (response.getEntity() != null) {
+                response.setEntity(new MeteredEntity(response.getEntity(), endpoint));
+            }
+            if (retryable && attempt < policy.getMaxAttempts() && policy.isRetryable(code)) {
+                long delay = policy.getDelay(attempt, response);
+                if (0 <= delay) {
+                    releaseConnection(response);
+                    policy.sleep(delay);
+                    stuff.request.reset();
+                    continue;
+                }
+            }
+            return response;
+        }
+    }
+
+    /**
+     * A request with a body can only be sent again if the body can be.
+     *
+     * @param request
+     * @return
+     */
+    protected boolean isRepeatable(HttpRequestBase request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity == null || entity.isRepeatable();
+        }
+        return true;
     }
 
-    public HttpClientContext getContext() {
+    public synchronized HttpClientContext getContext() {
         if (context == null) {
             CookieStore cookieStore = new BasicCookieStore();
             context = HttpClientContext.create();
@@ -482,6 +1122,134 @@ public class SWAMPHttpClient implements Serializable {
         return context;
     }
 
+    /**
+     * A fresh context for a single request that shares the cookie store of {@link #getContext()}. A context
+     * holds per-request state, so one may not be shared between requests running at the same time.
+     *
+     * @return
+     */
+    protected HttpClientContext newContext() {
+        HttpClientContext requestContext = HttpClientContext.create();
+        requestContext.setCookieStore(getContext().getCookieStore());
+        return requestContext;
+    }
+
+    transient private ExecutorService executor;
+    transient private boolean ownsExecutor = false;
+
+    /**
+     * The executor that runs the asynchronous calls, e.g. {@link #rawGetAsync(String, Map)}. Unless one has been
+     * set, this is a fixed pool of daemon threads the same size as the per-route connection limit, since more
+     * threads than that would only queue up waiting for a connection.
+     *
+     * @return
+     */
+    public synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(getMaxConnectionsPerRoute(), new ThreadFactory() {
+                AtomicInteger count = new AtomicInteger(0);
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "swamp-http-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            ownsExecutor = true;
+        }
+        return executor;
+    }
+
+    /**
+     * Use the given executor for asynchronous calls, e.g. one shared by an application that embeds this library.
+     * An executor set this way is not shut down by {@link #close()}.
+     *
+     * @param executor
+     */
+    public synchronized void setExecutor(ExecutorService executor) {
+        if (ownsExecutor && this.executor != null) {
+            this.executor.shutdown();
+        }
+        this.executor = executor;
+        ownsExecutor = false;
+    }
+
+    /**
+     * Runs the call on the {@link #getExecutor()}. Any exception it throws (e.g. an {@link HTTPException}) is
+     * the cause of the {@link java.util.concurrent.ExecutionException} thrown by {@link Future#get()}.
+     *
+     * @param callable
+     * @param <V>
+     * @return
+     */
+    public <V> Future<V> submit(Callable<V> callable) {
+        return getExecutor().submit(callable);
+    }
+
+    /**
+     * Asynchronous version of {@link #rawGet(String, Map)}.
+     *
+     * @param url
+     * @param map
+     * @return
+     */
+    public Future<MyResponse> rawGetAsync(final String url, final Map<String, Object> map) {
+        return submit(new Callable<MyResponse>() {
+            @Override
+            public MyResponse call() throws Exception {
+                return rawGet(url, map);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link #rawPost(String, Map)}.
+     *
+     * @param url
+     * @param map
+     * @return
+     */
+    public Future<MyResponse> rawPostAsync(final String url, final Map<String, Object> map) {
+        return submit(new Callable<MyResponse>() {
+            @Override
+            public MyResponse call() throws Exception {
+                return rawPost(url, map);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link #rawPut(String, Map)}.
+     *
+     * @param url
+     * @param map
+     * @return
+     */
+    public Future<MyResponse> rawPutAsync(final String url, final Map<String, Object> map) {
+        return submit(new Callable<MyResponse>() {
+            @Override
+            public MyResponse call() throws Exception {
+                return rawPut(url, map);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link #delete(String)}.
+     *
+     * @param url
+     * @return
+     */
+    public Future<MyResponse> deleteAsync(final String url) {
+        return submit(new Callable<MyResponse>() {
+            @Override
+            public MyResponse call() throws Exception {
+                return delete(url);
+            }
+        });
+    }
+
     protected MyResponse makeRequest(boolean doPost,
                                      String url,
                                      Map<String, Object> map) {
@@ -498,14 +1266,32 @@ public class SWAMPHttpClient implements Serializable {
      * @return
      * @throws UnsupportedEncodingException
      */
-    protected MyResponse makeRequest(boolean doPost,            // TODO: can this method be simplified?
+    protected MyResponse makeRequest(boolean doPost,
                                      String url,
                                      Map<String, Object> map,
                                      List<File> files) {
+        return makeRequest(doPost, url, map, files, false);
+    }
+
+    /**
+     * As per {@link #makeRequest(boolean, String, Map, List)}. If retryable is true, the caller is saying that
+     * this request may safely be sent more than once, so the {@link RetryPolicy} applies even to a POST.
+     *
+     * @param doPost
+     * @param url
+     * @param map
+     * @param files
+     * @param retryable
+     * @return
+     */
+    protected MyResponse makeRequest(boolean doPost,            // TODO: can this method be simplified?
+                                     String url,
+                                     Map<String, Object> map,
+                                     List<File> files,
+                                     boolean retryable) {
         
         //System.out.println("URL: " + url + ", Type: " + (doPost ? "POST" : "GET") );
         
-        HttpClient client = clientPool.pop();
         Stuff stuff = null;
         if (doPost) {
             stuff = new Stuff(url, map, Stuff.DO_POST);
@@ -535,7 +1321,7 @@ public class SWAMPHttpClient implements Serializable {
                 throw new SWAMPException("Unsupported encoding", e);
             }
             if (files != null && !files.isEmpty()) {
-                post = getHttpPost(post, map, files, client);
+                post = getHttpPost(post, map, files);
             }
             //req = post;
         } else {
@@ -558,9 +1344,9 @@ public class SWAMPHttpClient implements Serializable {
         try {
             try {
                 //response = client.execute(req, getContext());
-                response = client.execute(stuff.target, stuff.request, getContext());
+                response = execute(stuff, retryable);
                 if (response == null) {
-                    releaseConnection(client, response);
+                    releaseConnection(response);
                     throw new GeneralException("Error: null response from server. Do you have an internet connection?");
                 }
             } catch (javax.net.ssl.SSLHandshakeException xx) {
@@ -572,11 +1358,6 @@ public class SWAMPHttpClient implements Serializable {
             }
             
             HttpEntity entity1 = response.getEntity();
-            String x0 = EntityUtils.toString(entity1);
-            releaseConnection(client, response);
-            
-            // TODO: what if the repsonse is null
-
             int code = response.getStatusLine().getStatusCode();
 
             /* 2xx series codes indicate OK  */
@@ -585,19 +1366,27 @@ public class SWAMPHttpClient implements Serializable {
 //                for (Header header : response.getAllHeaders()) {
 //                    System.out.println(header);
 //                }
+                String x0 = entity1 == null ? null : EntityUtils.toString(entity1);
+                releaseConnection(response);
                 throw new HTTPException(x0, response.getStatusLine().getStatusCode());
 
             }
 
-            return new MyResponse(toJSON(x0), getContext().getCookieStore().getCookies());
+            JSON json;
+            try {
+                json = decode(entity1);
+            } finally {
+                releaseConnection(response);
+            }
+            return new MyResponse(json, getContext().getCookieStore().getCookies());
         } catch (IOException e) {
-            releaseConnection(client, response);
+            releaseConnection(response);
             // e.printStackTrace();      //TODO: do not print stack trace
             throw new GeneralException("Error invoking http client", e);
         }
     }
 
-    private HttpPost getHttpPost(HttpPost post, Map<String, Object> map, List<File> files, HttpClient client) {
+    private HttpPost getHttpPost(HttpPost post, Map<String, Object> map, List<File> files) {
         setHeaders(post);
         MultipartEntityBuilder meb = MultipartEntityBuilder.create();
         meb.setMode(HttpMultipartMode.BROWSER_COMPATIBLE);
@@ -628,17 +1417,29 @@ public class SWAMPHttpClient implements Serializable {
         return makeRequest(true, url, map, files);
     }
 
+    /**
+     * A POST that is retried on transient failures if retryable is true. Only use this when sending the
+     * same request twice does no harm.
+     *
+     * @param url
+     * @param map
+     * @param retryable
+     * @return
+     */
+    public MyResponse rawPost(String url, Map<String, Object> map, boolean retryable) {
+        return makeRequest(true, url, map, null, retryable);
+    }
+
     public MyResponse delete(String url) {
         Stuff stuff = new Stuff(url, null, Stuff.DO_DELETE);
         stuff.request.setHeader("Accept", "application/json, text/javascript, */*; q=0.01");
-        HttpClient client = clientPool.pop();
         HttpResponse response = null;
 
         try {
             try {
-                response = client.execute(stuff.target, stuff.request, getContext());
-            } catch (Throwable t) {
-                t.printStackTrace();
+                response = execute(stuff);
+            } catch (Throwable t) {     // TODO: do not catch Throwable
+                throw new GeneralException("Error contacting server", t);
             }
 
             int code = response.getStatusLine().getStatusCode();
@@ -646,7 +1447,7 @@ public class SWAMPHttpClient implements Serializable {
             /* 2xx series codes indicate OK  */
             /* could be more selective, MIR team indicates all 2xx OK */
             if (!(code >= 200 && code <= 299)) {
-                releaseConnection(client, response);
+                releaseConnection(response);
                 //      say("warning: got a status of " + response.getStatusLine() + " for address " + url);
                 throw new HTTPException(response.getStatusLine().getReasonPhrase() + " code=" + response.getStatusLine().getStatusCode(),
                         response.getStatusLine().getStatusCode());
@@ -655,17 +1456,22 @@ public class SWAMPHttpClient implements Serializable {
 
             HttpEntity entity1 = response.getEntity();
             JSONObject json = null;
-            String x0 = EntityUtils.toString(entity1);
             try {
-                json = JSONObject.fromObject(x0);
+                JSON x0 = decode(entity1);
+                if (x0 instanceof JSONObject) {
+                    json = (JSONObject) x0;
+                }
+            } catch (IOException x) {
+                throw x;
             } catch (Throwable x) {
                 //   say(this, "Exception:" + x.getClass().getSimpleName() + "message=" + x0);
             }
-            releaseConnection(client, response);
+            releaseConnection(response);
 
             return new MyResponse(json, getContext().getCookieStore().getCookies());
 
         } catch (IOException e) {
+            releaseConnection(response);
             e.printStackTrace();
             throw new GeneralException("Error invoking http client", e);
         }
@@ -673,16 +1479,45 @@ public class SWAMPHttpClient implements Serializable {
     }
 
 
+    /**
+     * Used when a streamed response is finished with. Unlike {@link #releaseConnection(HttpResponse)}
+     * this does not read what is left of the body. If it was read to the end the connection has already gone
+     * back to the pool, otherwise it is shut down rather than draining what might be a very large download.
+     *
+     * @param response
+     */
+    protected void closeResponse(HttpResponse response) throws IOException {
+        if (response instanceof CloseableHttpResponse) {
+            ((CloseableHttpResponse) response).close();
+        } else {
+            releaseConnection(response);
+        }
+    }
+
+    /**
+     * @deprecated The client is no longer needed, use {@link #releaseConnection(HttpResponse)}.
+     */
+    @Deprecated
     protected void releaseConnection(HttpClient client, HttpResponse response) {
+        releaseConnection(response);
+    }
+
+    protected void releaseConnection(HttpResponse response) {
         // This is necessary to close the underlying stream in a controlled way.
         // If the stream has already been consumed, this method discards the resulting
-        // IOException. Failure to do this will result in an exception:
-
-        // java.lang.IllegalStateException: Invalid use of BasicClientConnManager: connection still allocated.
-        // Make sure to release the connection before allocating another one.
+        // IOException. Consuming the entity is what hands the connection back to the pool
+        // so the next request can reuse it. Failure to do this leaks the connection and
+        // the pool will eventually block waiting for one to be released.
         if (response != null) {
             EntityUtils.consumeQuietly(response.getEntity());
+            if (response instanceof CloseableHttpResponse) {
+                try {
+                    // No-op if the entity was fully read, otherwise this discards the connection.
+                    ((CloseableHttpResponse) response).close();
+                } catch (IOException e) {
+                    // nothing to do.
+                }
+            }
         }
-        clientPool.push(client);
     }
 }
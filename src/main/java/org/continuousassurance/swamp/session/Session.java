@@ -4,6 +4,7 @@ import org.apache.http.cookie.Cookie;
 import org.continuousassurance.swamp.exceptions.NoJSONReturnedException;
 import org.continuousassurance.swamp.session.handlers.UserHandler;
 import org.continuousassurance.swamp.session.util.SWAMPServiceEnvironment;
+import org.continuousassurance.swamp.session.util.StringPool;
 
 import java.io.Serializable;
 import java.util.HashMap;
@@ -45,6 +46,7 @@ public class Session implements Serializable, Cloneable {
     private String sessionID;
     private String sessionKey;
     private String csaSessionKey;
+    private transient StringPool stringPool;
 
     /**
      * The constructor. You must set the {@link SWAMPHttpClient} before using this session.
@@ -100,6 +102,7 @@ public class Session implements Serializable, Cloneable {
         this.setSessionID(otherSession.getSessionID());
         this.setClient(otherSession.getClient());
         this.setCsaSessionKey(otherSession.getCsaSessionKey());
+        this.setStringPool(otherSession.getStringPool());
 
     }
 
@@ -210,5 +213,21 @@ public class Session implements Serializable, Cloneable {
         this.userUID = userUID;
     }
 
+    /**
+     * The pool handlers share attribute strings through. Sessions copied from this one share it too.
+     *
+     * @return
+     */
+    public synchronized StringPool getStringPool() {
+        if (stringPool == null) {
+            stringPool = new StringPool();
+        }
+        return stringPool;
+    }
+
+    public synchronized void setStringPool(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
 
 }
@@ -10,12 +10,16 @@ import org.continuousassurance.swamp.api.SwampThing;
 import org.continuousassurance.swamp.session.MyResponse;
 import org.continuousassurance.swamp.session.SWAMPHttpClient;
 import org.continuousassurance.swamp.session.Session;
+import org.continuousassurance.swamp.session.metrics.MetricsRegistry;
 import org.continuousassurance.swamp.session.util.ConversionMapImpl;
 import org.continuousassurance.swamp.session.util.Dates;
 import org.continuousassurance.swamp.session.util.SWAMPIdentifiers;
+import org.continuousassurance.swamp.session.util.StringPool;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * Top level handler class. A handler is a class that is responsible for handling the interactions with the
@@ -32,6 +36,11 @@ public abstract class AbstractHandler<T extends SwampThing> {
     public static final int DATA_TYPE_DATE = 3;
     public static final int DATA_TYPE_BOOLEAN = 4;
     public static final int DATA_TYPE_ARRAY = 5;
+    /**
+     * Set this system property to false to convert every identifier and date as soon as a response is read,
+     * rather than when the attribute is first used.
+     */
+    public static final String LAZY_DECODING_PROPERTY = "swamp-lazy-decoding";
 
     public AbstractHandler(Session session) {
         this.session = session;
@@ -47,6 +56,23 @@ public abstract class AbstractHandler<T extends SwampThing> {
 
     Session session;
 
+    /**
+     * If true (the default), {@link #setAttributes(ConversionMapImpl, String[], JSONObject, int)} keeps
+     * identifiers and dates raw in maps that have them in their schema and they are converted on first access.
+     * Listing commands typically use a few attributes of each object, so most are never converted.
+     *
+     * @return
+     */
+    public boolean isLazyDecoding() {
+        return lazyDecoding;
+    }
+
+    public void setLazyDecoding(boolean lazyDecoding) {
+        this.lazyDecoding = lazyDecoding;
+    }
+
+    boolean lazyDecoding = !"false".equalsIgnoreCase(System.getProperty(LAZY_DECODING_PROPERTY));
+
 
     protected SWAMPHttpClient getClient() {
         if (session == null) {
@@ -61,6 +87,40 @@ public abstract class AbstractHandler<T extends SwampThing> {
 
     public abstract Collection<T> getAll();
 
+    /**
+     * Runs {@link #getAll()} on the client's executor so it can overlap with other calls.
+     *
+     * @return
+     */
+    public Future<Collection<T>> getAllAsync() {
+        return async(new Callable<Collection<T>>() {
+            @Override
+            public Collection<T> call() throws Exception {
+                return getAll();
+            }
+        });
+    }
+
+    /**
+     * Runs the call on the client's executor. Handlers use this for their asynchronous variants.
+     *
+     * @param callable
+     * @param <V>
+     * @return
+     */
+    protected <V> Future<V> async(Callable<V> callable) {
+        return getClient().submit(callable);
+    }
+
+    /**
+     * The request metrics of the client this handler uses, e.g. to see how the calls it makes are doing.
+     *
+     * @return
+     */
+    public MetricsRegistry getMetrics() {
+        return getClient().getMetrics();
+    }
+
     /**
      * The base URL for this component.
      *
@@ -120,7 +180,7 @@ public abstract class AbstractHandler<T extends SwampThing> {
                 switch (dataType) {
                     case DATA_TYPE_IDENTIFIER:
                         String x = json.getString(key);
-                        if (x != null) {
+                        if (x != null && !(lazyDecoding && map.putRaw(key, x))) {
                             map.put(key, SWAMPIdentifiers.toIdentifier(x));
                         }
                         break;
@@ -133,7 +193,9 @@ public abstract class AbstractHandler<T extends SwampThing> {
                         }
                         break;
                     case DATA_TYPE_DATE:
-                        map.put(key, Dates.toSWAMPDate(json, key));
+                        if (!(lazyDecoding && map.putRaw(key, json.get(key)))) {
+                            map.put(key, Dates.toSWAMPDate(json, key));
+                        }
                         break;
                     case DATA_TYPE_ARRAY:
                         //map.put(key, json.getJSONArray(key).toString(0));
@@ -143,7 +205,7 @@ public abstract class AbstractHandler<T extends SwampThing> {
                     default:
                         Object object = json.get(key);
                         if ((object != null) && !(object instanceof JSONNull)) {
-                            map.put(key, object.toString());
+                            map.put(key, pool(object.toString()));
                         }
                 }
             } catch (JSONException js) {
@@ -155,6 +217,27 @@ public abstract class AbstractHandler<T extends SwampThing> {
         }
     }
 
+    /**
+     * Returns the instance of the string shared through the session's {@link StringPool}, so that values repeated
+     * across many objects are only kept once.
+     *
+     * @param s
+     * @return
+     */
+    protected String pool(String s) {
+        return session == null ? s : session.getStringPool().intern(s);
+    }
+
+    /**
+     * Pools the value if it is a string, e.g. one taken straight from a {@link JSONObject}.
+     *
+     * @param value
+     * @return
+     */
+    protected Object pool(Object value) {
+        return value instanceof String ? pool((String) value) : value;
+    }
+
     protected int getDataType(Object o) {
         if (o instanceof String) return DATA_TYPE_STRING;
         if (o instanceof Boolean) return DATA_TYPE_BOOLEAN;
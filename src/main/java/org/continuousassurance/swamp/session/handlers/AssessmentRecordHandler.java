@@ -5,11 +5,14 @@ import org.continuousassurance.swamp.api.Project;
 import org.continuousassurance.swamp.session.MyResponse;
 import org.continuousassurance.swamp.session.Session;
 import org.continuousassurance.swamp.session.util.ConversionMapImpl;
+import org.continuousassurance.swamp.session.util.StreamingJSONDecoder;
 import net.sf.json.JSONException;
 import net.sf.json.JSONObject;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import static org.continuousassurance.swamp.session.handlers.PackageHandler.PACKAGE_UUID_KEY;
 import static org.continuousassurance.swamp.session.handlers.PlatformHandler.PLATFORM_UUID_KEY;
@@ -80,27 +83,46 @@ public class AssessmentRecordHandler<T extends AssessmentRecord> extends Abstrac
      * @param project
      * @return
      */
-    public List<T> getExecutionRecords(Project project) {
+    public List<T> getExecutionRecords(final Project project) {
         String url = createURL("projects/" + project.getUUIDString() + "/execution_records");
-        MyResponse mr = getClient().rawGet(url, null);
-        ArrayList<T> execution_records = new ArrayList<>();
-        for (int i = 0; i < mr.jsonArray.size(); i++) {
-            JSONObject jo = mr.jsonArray.getJSONObject(i);
-            //Object v = jo.get(ASSESSMENT_RUN_UUID); // this is actually the uuid of the assessment run.
-            //T record = (T) new AssessmentRecord(getSession());
-            //record.setIdentifier(SWAMPIdentifiers.toIdentifier(v.toString()));
-            T record = fromJSON(jo);
-            record.setProject(project);
-            execution_records.add(record);
-        }
+        final ArrayList<T> execution_records = new ArrayList<>();
+        // There can be many thousands of these, so each one is bound as it is parsed rather than
+        // building the whole array first.
+        getClient().rawGetEach(url, null, new StreamingJSONDecoder.ElementHandler() {
+            @Override
+            public void handle(Object element) {
+                JSONObject jo = (JSONObject) element;
+                //Object v = jo.get(ASSESSMENT_RUN_UUID); // this is actually the uuid of the assessment run.
+                //T record = (T) new AssessmentRecord(getSession());
+                //record.setIdentifier(SWAMPIdentifiers.toIdentifier(v.toString()));
+                T record = fromJSON(jo);
+                record.setProject(project);
+                execution_records.add(record);
+            }
+        });
         return execution_records;
     }
 
+    /**
+     * Asynchronous version of {@link #getExecutionRecords(Project)}.
+     *
+     * @param project
+     * @return
+     */
+    public Future<List<T>> getExecutionRecordsAsync(final Project project) {
+        return async(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                return getExecutionRecords(project);
+            }
+        });
+    }
+
 
     @Override
     protected T fromJSON(JSONObject json) {
         T a = (T) new AssessmentRecord(getSession());
-        ConversionMapImpl map = new ConversionMapImpl();
+        ConversionMapImpl map = new ConversionMapImpl(a.getConversionSchema());
         String[] uAttrib = {EXECUTION_RECORD_UUID, ASSESSMENT_RUN_UUID, ASSESSMENT_RESULT_UUID,
         					PROJECT_UUID, 
         					 };
@@ -111,22 +133,22 @@ public class AssessmentRecordHandler<T extends AssessmentRecord> extends Abstrac
         setAttributes(map, new String[] {CREATE_DATE}, json, DATA_TYPE_DATE);
 
         JSONObject pkg_info = json.getJSONObject("package");
-        map.put("package_name", pkg_info.get(PACKAGE_NAME));
-        map.put("package_version", pkg_info.get(PACKAGE_VERSION));
+        map.put("package_name", pool(pkg_info.get(PACKAGE_NAME)));
+        map.put("package_version", pool(pkg_info.get(PACKAGE_VERSION)));
         
         setAttributes(map, new String[] {PACKAGE_UUID_KEY, PACKAGE_VERSION_UUID},
                 pkg_info, DATA_TYPE_IDENTIFIER);
                 
         JSONObject tool_info = json.getJSONObject("tool");
-        map.put("tool_name", tool_info.get(TOOL_NAME));
-        map.put("tool_version", tool_info.get(TOOL_VERSION));
+        map.put("tool_name", pool(tool_info.get(TOOL_NAME)));
+        map.put("tool_version", pool(tool_info.get(TOOL_VERSION)));
         
         setAttributes(map, new String[] {TOOL_UUID_KEY, TOOL_VERSION_UUID},
                 tool_info, DATA_TYPE_IDENTIFIER);
 
         JSONObject plat_info = json.getJSONObject("platform");
-        map.put("platform_name", plat_info.get(PLATFORM_NAME));
-        map.put("platform_version", plat_info.get(PLATFORM_VERSION));
+        map.put("platform_name", pool(plat_info.get(PLATFORM_NAME)));
+        map.put("platform_version", pool(plat_info.get(PLATFORM_VERSION)));
         
         setAttributes(map, new String[] {PLATFORM_UUID_KEY, PLATFORM_VERSION_UUID},
                 plat_info, DATA_TYPE_IDENTIFIER);
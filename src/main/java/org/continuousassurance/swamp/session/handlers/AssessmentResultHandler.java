@@ -1,15 +1,19 @@
 package org.continuousassurance.swamp.session.handlers;
 
 import org.continuousassurance.swamp.api.Project;
+import org.continuousassurance.swamp.session.HTTPException;
 import org.continuousassurance.swamp.session.MyResponse;
 import org.continuousassurance.swamp.session.Session;
 import org.continuousassurance.swamp.api.AssessmentResults;
 import org.continuousassurance.swamp.session.util.ConversionMapImpl;
 import net.sf.json.JSONObject;
+import org.apache.http.HttpStatus;
 
 import java.io.OutputStream;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * <p>Created by Jeff Gaynor<br>
@@ -39,7 +43,7 @@ public class AssessmentResultHandler<T extends AssessmentResults> extends Abstra
         T t = (T) new AssessmentResults(getSession(), null);
 
 
-        ConversionMapImpl map = new ConversionMapImpl();
+        ConversionMapImpl map = new ConversionMapImpl(t.getConversionSchema());
         String[] sAttrib = {CREATE_USER_KEY,
                 UPDATE_USER_KEY,
                 PACKAGE_NAME_KEY,
@@ -88,6 +92,21 @@ public class AssessmentResultHandler<T extends AssessmentResults> extends Abstra
         return list;
     }
 
+    /**
+     * Asynchronous version of {@link #getAll(Project)}.
+     *
+     * @param project
+     * @return
+     */
+    public Future<List<T>> getAllAsync(final Project project) {
+        return async(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                return getAll(project);
+            }
+        });
+    }
+
     @Override
     public String getURL() {
         return createURL("v1/assessment_results");
@@ -109,4 +128,60 @@ public class AssessmentResultHandler<T extends AssessmentResults> extends Abstra
         return myresponse.getOutputStream();
     }
 
+    /**
+     * Returns the SCARF results as a streaming response, or null if there were none. An error status from
+     * the server is thrown as an {@link HTTPException}. Nothing is buffered, so
+     * the results can be copied to a file (e.g. with {@link MyResponse#writeTo(OutputStream)}) however large
+     * they are. The caller must close the response to release the connection.
+     *
+     * @param results
+     * @return
+     */
+    public MyResponse getScarfResultsStream(AssessmentResults results) {
+        return getScarfResultsStream(results.getUUIDString());
+    }
+
+    /**
+     * As {@link #getScarfResultsStream(AssessmentResults)}, for results known only by their UUID, e.g. from
+     * {@link org.continuousassurance.swamp.api.AssessmentRecord#getAssessmentResultUUID()}.
+     *
+     * @param resultsUuid
+     * @return
+     */
+    public MyResponse getScarfResultsStream(String resultsUuid) {
+        String url = getURL() + "/" + resultsUuid + "/scarf";
+        MyResponse myresponse = getClient().rawGetStream(url, null);
+        int code = myresponse.getHttpResponseCode();
+        if (!(code >= 200 && code <= 299)) {
+            // an error that outlasted the retries, not an absence of results
+            throw new HTTPException(myresponse.json == null ? "Could not get SCARF results " + resultsUuid
+                    : myresponse.json.toString(), code);
+        }
+        // If the response is not a stream, then it was JSON and there was no scarf result found.
+        if (!myresponse.isStreamable()) {
+            return null;
+        }
+        return myresponse;
+    }
+
+    /**
+     * The size in bytes of the SCARF results, asked for with a HEAD so nothing is downloaded.
+     *
+     * @param resultsUuid
+     * @return the size, or -1 if the server does not say, e.g. if there are no results or it does not
+     * support HEAD
+     */
+    public long getScarfResultsLength(String resultsUuid) {
+        String url = getURL() + "/" + resultsUuid + "/scarf";
+        MyResponse myresponse = getClient().rawHead(url);
+        int code = myresponse.getHttpResponseCode();
+        if (code == HttpStatus.SC_METHOD_NOT_ALLOWED || code == HttpStatus.SC_NOT_IMPLEMENTED) {
+            return -1L;
+        }
+        if (!(code >= 200 && code <= 299)) {
+            throw new HTTPException("Could not get SCARF results " + resultsUuid, code);
+        }
+        return myresponse.isStreamable() ? myresponse.getContentLength() : -1L;
+    }
+
 }
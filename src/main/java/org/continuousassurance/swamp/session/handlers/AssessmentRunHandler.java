@@ -181,7 +181,7 @@ public class AssessmentRunHandler<T extends AssessmentRun> extends AbstractHandl
     @Override
     protected T fromJSON(JSONObject json) {
         T a = (T) new AssessmentRun(getSession());
-        ConversionMapImpl map = new ConversionMapImpl();
+        ConversionMapImpl map = new ConversionMapImpl(a.getConversionSchema());
         String[] uAttrib = {ASSESSMENT_RUN_UUID, PROJECT_UUID,
                 PackageHandler.PACKAGE_UUID_KEY, PACKAGE_VERSION_UUID, ToolHandler.TOOL_UUID_KEY, TOOL_VERSION_UUID,
                 PLATFORM_VERSION_UUID, PlatformHandler.PLATFORM_UUID_KEY};
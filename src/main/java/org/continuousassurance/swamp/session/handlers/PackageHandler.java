@@ -14,6 +14,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * <p>Created by Jeff Gaynor<br>
@@ -104,7 +106,7 @@ public class PackageHandler<T extends PackageThing> extends AbstractHandler<T> {
 
     protected T fromJSON(JSONObject json) {
         T packageThing = (T) new PackageThing(getSession());
-        ConversionMapImpl map = new ConversionMapImpl();
+        ConversionMapImpl map = new ConversionMapImpl(packageThing.getConversionSchema());
         String[] sAttrib = {PACKAGE_NAME_KEY, PACKAGE_DESCRIPTION_KEY, PACKAGE_TYPE_KEY, PACKAGE_TYPE_ID_KEY, PACKAGE_SHARING_STATUS_KEY, EXTERNAL_URI_KEY};
         String[] uAttrib = {PACKAGE_UUID_KEY};
         String[] bAttrib = {IS_OWNED_KEY};
@@ -166,6 +168,21 @@ public class PackageHandler<T extends PackageThing> extends AbstractHandler<T> {
         return pkgs;
     }
 
+    /**
+     * Asynchronous version of {@link #getAll(Project)}.
+     *
+     * @param project
+     * @return
+     */
+    public Future<List<T>> getAllAsync(final Project project) {
+        return async(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                return getAll(project);
+            }
+        });
+    }
+
     
     @Override
     public String getURL() {
@@ -1,7 +1,6 @@
 package org.continuousassurance.swamp.session.handlers;
 
 import edu.uiuc.ncsa.security.core.exceptions.NotImplementedException;
-import edu.uiuc.ncsa.security.core.util.BasicIdentifier;
 import net.sf.json.JSONObject;
 import org.continuousassurance.swamp.api.*;
 import org.continuousassurance.swamp.exceptions.NoJSONReturnedException;
@@ -13,6 +12,8 @@ import org.continuousassurance.swamp.util.HandlerFactoryUtil;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * <p>Created by Jeff Gaynor<br>
@@ -78,7 +79,7 @@ public class PackageVersionHandler<T extends PackageVersion> extends AbstractHan
 
     protected T fromJSON(JSONObject json) {
         T packageVersion = (T) new PackageVersion(getSession());
-        ConversionMapImpl map = new ConversionMapImpl();
+        ConversionMapImpl map = new ConversionMapImpl(packageVersion.getConversionSchema());
         String[] sAttrib = {FILENAME, FILE_UPLOAD_NAME, FILE_UPLOAD_PATH, FILE_UPLOAD_EXTENSION, FILE_UPLOAD_MIME_TYPE, FILE_UPLOAD_ID,
                 BUILD_CMD, BUILD_DIR, BUILD_OPT,
                 BUILD_FILE, BUILD_SYSTEM, BUILD_TARGET,
@@ -124,9 +125,45 @@ public class PackageVersionHandler<T extends PackageVersion> extends AbstractHan
         return versions;
     }
 
+    /**
+     * Asynchronous version of {@link #getAll(PackageThing)}.
+     *
+     * @param packageThing
+     * @return
+     */
+    public Future<List<T>> getAllAsync(final PackageThing packageThing) {
+        return async(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                return getAll(packageThing);
+            }
+        });
+    }
+
+    /**
+     * Downloads the archive for this package version into the target directory. An interrupted download
+     * is resumed from where it stopped on the next call.
+     *
+     * @param packageVersion
+     * @param targetDirectory
+     * @return
+     */
     public File download(PackageVersion packageVersion, File targetDirectory) {
+        return download(packageVersion, targetDirectory, true);
+    }
+
+    /**
+     * Downloads the archive for this package version into the target directory. If resume is false any
+     * partial download left from an earlier attempt is discarded and the archive is fetched in full.
+     *
+     * @param packageVersion
+     * @param targetDirectory
+     * @param resume
+     * @return
+     */
+    public File download(PackageVersion packageVersion, File targetDirectory, boolean resume) {
         String url = createURL("packages/versions/" + packageVersion.getUUIDString() + "/download");
-        return getClient().getFile(url, targetDirectory, packageVersion.getFilename());
+        return getClient().getFile(url, targetDirectory, packageVersion.getFilename(), resume);
     }
 
     @Override
@@ -258,7 +295,7 @@ public class PackageVersionHandler<T extends PackageVersion> extends AbstractHan
             if(response.jsonArray == null) return projects; // if no response, return empty list.
             // then we should have gotten an array of project uuids.
             for (int i = 0; i < response.jsonArray.size(); i++) {
-                projects.add(HandlerFactoryUtil.getProjectH().get(BasicIdentifier.newID(response.jsonArray.getString(i))));
+                projects.add(HandlerFactoryUtil.getProjectH().get(SWAMPIdentifiers.toIdentifier(response.jsonArray.getString(i))));
 
             }
         }
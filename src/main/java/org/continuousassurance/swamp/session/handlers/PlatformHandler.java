@@ -40,7 +40,7 @@ public class PlatformHandler<T extends Platform> extends AbstractHandler<T> {
 
     protected T fromJSON(JSONObject json) {
         T platform = (T) new Platform(getSession());
-        ConversionMapImpl map = new ConversionMapImpl();
+        ConversionMapImpl map = new ConversionMapImpl(platform.getConversionSchema());
         String[] sAttrib = {NAME_KEY, PLATFORM_SHARING_STATUS_KEY, DESCRIPTION_KEY};
         String[] uAttrib = {PLATFORM_UUID_KEY};
         String[] dAttrib = {CREATE_DATE_KEY, UPDATE_DATE_KEY};
@@ -11,6 +11,8 @@ import net.sf.json.JSONObject;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * <p>Created by Jeff Gaynor<br>
@@ -40,13 +42,28 @@ public class PlatformVersionHandler<T extends PlatformVersion> extends AbstractH
               return platform_versions;
     }
 
+    /**
+     * Asynchronous version of {@link #getAll(Platform)}.
+     *
+     * @param platform
+     * @return
+     */
+    public Future<List<T>> getAllAsync(final Platform platform) {
+        return async(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                return getAll(platform);
+            }
+        });
+    }
+
     protected T fromJSON(JSONObject json) {
         T platform_version = (T) new PlatformVersion(getSession());
         
         String[] sAttrib = {PlatformVersion.NAME_KEY, PlatformVersion.VERSION_STRING};
         String[] uAttrib = {PlatformVersion.PLATFORM_VERSION_UUID_KEY, PlatformVersion.PLATFORM_UUID_KEY};
         
-        ConversionMapImpl map = new ConversionMapImpl();
+        ConversionMapImpl map = new ConversionMapImpl(platform_version.getConversionSchema());
         setAttributes(map, sAttrib, json, DATA_TYPE_STRING);
         setAttributes(map, uAttrib, json, DATA_TYPE_IDENTIFIER);
         
@@ -50,7 +50,7 @@ public class ProjectHandler<T extends Project> extends AbstractHandler<T> {
     @Override
     protected T fromJSON(JSONObject json) {
         T project = (T) new Project(getSession());
-        ConversionMapImpl map = new ConversionMapImpl();
+        ConversionMapImpl map = new ConversionMapImpl(project.getConversionSchema());
         String[] sAttrib = {FULL_NAME_KEY, SHORT_NAME_KEY, DESCRIPTION_KEY, AFFILIATION_KEY};
         String[] bAttrib = {TRIAL_PROJECT_FLAG_KEY};
         String[] uAttrib = {PROJECT_UID_KEY};
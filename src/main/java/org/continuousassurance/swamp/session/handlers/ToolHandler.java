@@ -11,6 +11,8 @@ import net.sf.json.JSONObject;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * <p>Created by Jeff Gaynor<br>
@@ -96,6 +98,21 @@ public class ToolHandler<T extends Tool> extends AbstractHandler<T> {
         return tools;
     }
 
+    /**
+     * Asynchronous version of {@link #getAll(Project)}.
+     *
+     * @param project
+     * @return
+     */
+    public Future<List<T>> getAllAsync(final Project project) {
+        return async(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                return getAll(project);
+            }
+        });
+    }
+
     public boolean hasPermission(String tool_uuid, String project_uuid, String package_uuid) {
         String url = createURL("tools/" + tool_uuid + "/permission");
         HashMap<String, Object> map = new HashMap<String, Object>();
@@ -124,7 +141,7 @@ public class ToolHandler<T extends Tool> extends AbstractHandler<T> {
     
     protected T fromJSON(JSONObject json) {
         T tool = (T) new Tool(getSession());
-        ConversionMapImpl map = new ConversionMapImpl();
+        ConversionMapImpl map = new ConversionMapImpl(tool.getConversionSchema());
         String[] sAttrib = {NAME_KEY,TOOL_SHARING_STATUS_KEY,POLICY_CODE_KEY,POLICY_KEY, DESCRIPTION_KEY, CREATE_USER_KEY};
         String[] uAttrib = {TOOL_UUID_KEY};
         String[] dAttrib = {CREATE_DATE_KEY,UPDATE_DATE_KEY};
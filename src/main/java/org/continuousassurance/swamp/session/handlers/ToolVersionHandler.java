@@ -27,7 +27,7 @@ public class ToolVersionHandler<T extends ToolVersion> extends AbstractHandler<T
     @Override
     protected T fromJSON(JSONObject json) {
         T tv = (T) new ToolVersion(getSession());
-        ConversionMapImpl map = new ConversionMapImpl();
+        ConversionMapImpl map = new ConversionMapImpl(tv.getConversionSchema());
         String[] sAttrib = {ToolVersion.NOTES_KEY, ToolVersion.VERSION_STRING_KEY, ToolVersion.TOOL_PATH_KEY,
                 ToolVersion.TOOL_EXECUTABLE_KEY, ToolVersion.TOOL_ARGUMENTS_KEY, ToolVersion.TOOL_DIRECTORY_KEY};
         String[] uAttrib = {ToolVersion.TOOL_UUID_KEY, ToolVersion.TOOL_VERSION_UUID_KEY};
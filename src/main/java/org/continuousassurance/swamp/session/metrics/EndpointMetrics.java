@@ -0,0 +1,187 @@
+package org.continuousassurance.swamp.session.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters for one endpoint template. Latency is the time from sending the request to receiving the response
+ * headers, i.e. mostly the server. Decode time is what the client then spends parsing the body, so the two
+ * together show which side a slow call is spending its time on.
+ * <p>This is thread safe.</p>
+ */
+public class EndpointMetrics {
+    /**
+     * Upper bounds (in ms.) of the latency histogram buckets. There is one more bucket for anything longer.
+     */
+    public static final long[] BUCKETS = {10L, 25L, 50L, 100L, 250L, 500L, 1000L, 2500L, 5000L, 10000L};
+
+    String name;
+    AtomicLong requests = new AtomicLong();
+    AtomicLong errors = new AtomicLong();
+    AtomicLong retries = new AtomicLong();
+    AtomicLong bytesIn = new AtomicLong();
+    AtomicLong bytesOut = new AtomicLong();
+    AtomicLong latency = new AtomicLong(); // total, in ns.
+    AtomicLong maxLatency = new AtomicLong();
+    AtomicLong decodeTime = new AtomicLong(); // total, in ns.
+    AtomicLongArray histogram = new AtomicLongArray(BUCKETS.length + 1);
+    Map<Integer, Long> statusCodes = new TreeMap<>();
+
+    public EndpointMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Record a response.
+     *
+     * @param statusCode
+     * @param latencyNanos time to the response headers.
+     * @param requestBytes size of the request body, if known.
+     */
+    public void recordResponse(int statusCode, long latencyNanos, long requestBytes) {
+        requests.incrementAndGet();
+        latency.addAndGet(latencyNanos);
+        long current;
+        while (latencyNanos > (current = maxLatency.get()) && !maxLatency.compareAndSet(current, latencyNanos)) {
+            // try again
+        }
+        long ms = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        int i = 0;
+        while (i < BUCKETS.length && BUCKETS[i] < ms) {
+            i++;
+        }
+        histogram.incrementAndGet(i);
+        if (0 < requestBytes) {
+            bytesOut.addAndGet(requestBytes);
+        }
+        synchronized (statusCodes) {
+            Long count = statusCodes.get(statusCode);
+            statusCodes.put(statusCode, count == null ? 1L : count + 1L);
+        }
+    }
+
+    /**
+     * Record a request that got no response at all, e.g. the connection failed.
+     */
+    public void recordError() {
+        errors.incrementAndGet();
+    }
+
+    public void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    public void recordBytesIn(long count) {
+        bytesIn.addAndGet(count);
+    }
+
+    public void recordDecode(long nanos) {
+        decodeTime.addAndGet(nanos);
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    public Map<Integer, Long> getStatusCodes() {
+        synchronized (statusCodes) {
+            return new TreeMap<>(statusCodes);
+        }
+    }
+
+    /**
+     * An upper bound for the given percentile of the latency, in ms., read off the histogram. Returns -1 if
+     * it falls in the last, open ended bucket.
+     *
+     * @param percentile between 0 and 100.
+     * @return
+     */
+    public long getLatencyPercentile(double percentile) {
+        long total = 0L;
+        for (int i = 0; i < histogram.length(); i++) {
+            total += histogram.get(i);
+        }
+        long target = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS.length; i++) {
+            seen += histogram.get(i);
+            if (target <= seen) {
+                return BUCKETS[i];
+            }
+        }
+        return -1L;
+    }
+
+    public long getAverageLatency() {
+        long n = requests.get();
+        return n == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis(latency.get() / n);
+    }
+
+    public long getMaxLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatency.get());
+    }
+
+    public long getDecodeTime() {
+        return TimeUnit.NANOSECONDS.toMillis(decodeTime.get());
+    }
+
+    protected static String percentile(long value) {
+        return value < 0 ? ">" + BUCKETS[BUCKETS.length - 1] + "ms" : "<=" + value + "ms";
+    }
+
+    protected static String bytes(long count) {
+        if (count < 1024L) {
+            return count + "B";
+        }
+        if (count < 1024L * 1024L) {
+            return String.format("%.1fKB", count / 1024.0);
+        }
+        return String.format("%.1fMB", count / (1024.0 * 1024.0));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(name);
+        sb.append(" n=").append(getRequestCount());
+        if (0 < getErrorCount()) {
+            sb.append(" errors=").append(getErrorCount());
+        }
+        if (0 < getRetryCount()) {
+            sb.append(" retries=").append(getRetryCount());
+        }
+        for (Map.Entry<Integer, Long> entry : getStatusCodes().entrySet()) {
+            sb.append(" ").append(entry.getKey()).append("=").append(entry.getValue());
+        }
+        sb.append(" avg=").append(getAverageLatency()).append("ms");
+        sb.append(" p50").append(percentile(getLatencyPercentile(50)));
+        sb.append(" p95").append(percentile(getLatencyPercentile(95)));
+        sb.append(" max=").append(getMaxLatency()).append("ms");
+        sb.append(" decode=").append(getDecodeTime()).append("ms");
+        sb.append(" in=").append(bytes(getBytesIn()));
+        sb.append(" out=").append(bytes(getBytesOut()));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package org.continuousassurance.swamp.session.metrics;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Wraps a response body so that the bytes actually read from it are added to the endpoint's metrics.
+ */
+public class MeteredEntity extends HttpEntityWrapper {
+    EndpointMetrics metrics;
+    InputStream content;
+
+    public MeteredEntity(HttpEntity wrappedEntity, EndpointMetrics metrics) {
+        super(wrappedEntity);
+        this.metrics = metrics;
+    }
+
+    public EndpointMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        if (content == null || isRepeatable()) {
+            InputStream in = super.getContent();
+            content = in == null ? null : new CountingInputStream(in);
+        }
+        return content;
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        InputStream in = getContent();
+        if (in == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                outstream.write(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    class CountingInputStream extends FilterInputStream {
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                metrics.recordBytesIn(1L);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (0 < n) {
+                metrics.recordBytesIn(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (0 < skipped) {
+                metrics.recordBytesIn(skipped);
+            }
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.continuousassurance.swamp.session.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Request metrics, per endpoint template. A template is the method and path of the request with the
+ * identifiers taken out, so <code>GET /projects/3f0c.../execution_records</code> is counted under
+ * <code>GET /projects/{id}/execution_records</code>.
+ * <p>There is normally one registry per JVM (see {@link #getInstance()}), which is also registered with the
+ * platform MBean server as {@link #OBJECT_NAME} so it can be watched with e.g. jconsole.</p>
+ */
+public class MetricsRegistry implements MetricsRegistryMBean {
+    public static final String OBJECT_NAME = "org.continuousassurance.swamp:type=HttpMetrics";
+
+    /**
+     * Path segments that are identifiers: UUIDs, numbers and long hex strings.
+     */
+    protected static final Pattern ID_SEGMENT = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|[0-9]+|[0-9a-fA-F]{16,}");
+
+    static MetricsRegistry instance;
+
+    public static synchronized MetricsRegistry getInstance() {
+        if (instance == null) {
+            instance = new MetricsRegistry();
+            instance.registerMBean();
+        }
+        return instance;
+    }
+
+    ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Registers this with the platform MBean server. Failing to (e.g. if one is already registered under
+     * that name) is not an error, there just won't be a JMX view of this registry.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException | SecurityException x) {
+            // no JMX then.
+        }
+    }
+
+    public static String toTemplate(String method, String path) {
+        StringBuilder sb = new StringBuilder(method).append(" ");
+        if (path == null || path.length() == 0) {
+            return sb.append("/").toString();
+        }
+        String[] segments = path.split("/");
+        for (int i = 0; i < segments.length; i++) {
+            if (i != 0) {
+                sb.append("/");
+            }
+            sb.append(ID_SEGMENT.matcher(segments[i]).matches() ? "{id}" : segments[i]);
+        }
+        if (path.endsWith("/")) {
+            sb.append("/");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The metrics for the endpoint this request goes to, created if need be.
+     *
+     * @param method
+     * @param path
+     * @return
+     */
+    public EndpointMetrics getEndpoint(String method, String path) {
+        String template = toTemplate(method, path);
+        EndpointMetrics metrics = endpoints.get(template);
+        if (metrics == null) {
+            EndpointMetrics newMetrics = new EndpointMetrics(template);
+            metrics = endpoints.putIfAbsent(template, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+            }
+        }
+        return metrics;
+    }
+
+    public List<EndpointMetrics> getEndpointMetrics() {
+        List<EndpointMetrics> list = new ArrayList<>(endpoints.values());
+        Collections.sort(list, new java.util.Comparator<EndpointMetrics>() {
+            @Override
+            public int compare(EndpointMetrics o1, EndpointMetrics o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        return list;
+    }
+
+    @Override
+    public long getRequestCount() {
+        long total = 0L;
+        for (EndpointMetrics m : endpoints.values()) {
+            total += m.getRequestCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getErrorCount() {
+        long total = 0L;
+        for (EndpointMetrics m : endpoints.values()) {
+            total += m.getErrorCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getRetryCount() {
+        long total = 0L;
+        for (EndpointMetrics m : endpoints.values()) {
+            total += m.getRetryCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getBytesIn() {
+        long total = 0L;
+        for (EndpointMetrics m : endpoints.values()) {
+            total += m.getBytesIn();
+        }
+        return total;
+    }
+
+    @Override
+    public long getBytesOut() {
+        long total = 0L;
+        for (EndpointMetrics m : endpoints.values()) {
+            total += m.getBytesOut();
+        }
+        return total;
+    }
+
+    @Override
+    public String[] getEndpoints() {
+        List<EndpointMetrics> list = getEndpointMetrics();
+        String[] names = new String[list.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = list.get(i).getName();
+        }
+        return names;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        for (EndpointMetrics m : getEndpointMetrics()) {
+            sb.append(m.toString()).append("\n");
+        }
+        sb.append("total requests=").append(getRequestCount())
+                .append(" errors=").append(getErrorCount())
+                .append(" retries=").append(getRetryCount())
+                .append(" in=").append(EndpointMetrics.bytes(getBytesIn()))
+                .append(" out=").append(EndpointMetrics.bytes(getBytesOut()))
+                .append("\n");
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        endpoints.clear();
+    }
+}
@@ -0,0 +1,32 @@
+package org.continuousassurance.swamp.session.metrics;
+
+/**
+ * The JMX view of a {@link MetricsRegistry}, registered as {@link MetricsRegistry#OBJECT_NAME}.
+ */
+public interface MetricsRegistryMBean {
+    long getRequestCount();
+
+    long getErrorCount();
+
+    long getRetryCount();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    /**
+     * The endpoint templates seen so far, e.g. <code>GET /projects/{id}/execution_records</code>.
+     *
+     * @return
+     */
+    String[] getEndpoints();
+
+    /**
+     * One line per endpoint, as printed by <code>swamp ... --stats</code>.
+     *
+     * @return
+     */
+    String getReport();
+
+    void reset();
+}
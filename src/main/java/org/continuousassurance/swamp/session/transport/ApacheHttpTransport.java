@@ -0,0 +1,35 @@
+package org.continuousassurance.swamp.session.transport;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+import java.io.IOException;
+
+/**
+ * The default transport, backed by an Apache HttpClient (normally the pooled one built by
+ * {@link org.continuousassurance.swamp.session.SWAMPHttpClient}).
+ */
+public class ApacheHttpTransport implements HttpTransport {
+    CloseableHttpClient httpClient;
+
+    public ApacheHttpTransport(CloseableHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    @Override
+    public CloseableHttpResponse execute(HttpHost target, HttpRequestBase request, HttpClientContext context) throws IOException {
+        return httpClient.execute(target, request, context);
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
@@ -0,0 +1,25 @@
+package org.continuousassurance.swamp.session.transport;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The layer that actually moves bytes for {@link org.continuousassurance.swamp.session.SWAMPHttpClient}. Requests
+ * and responses are described with the Apache HttpCore model, since that is what the rest of the client already
+ * speaks, but an implementation is free to use any HTTP stack underneath.
+ * <p>Implementations must be thread safe. They must read cookies for the request from, and store cookies set
+ * by the response in, the cookie store of the context, and must route through the configured
+ * {@link org.continuousassurance.swamp.session.util.Proxy}. Closing the response (or reading its entity to the
+ * end) releases whatever connection it holds.</p>
+ *
+ * @see ApacheHttpTransport
+ * @see URLConnectionTransport
+ */
+public interface HttpTransport extends Closeable {
+    CloseableHttpResponse execute(HttpHost target, HttpRequestBase request, HttpClientContext context) throws IOException;
+}
@@ -0,0 +1,252 @@
+package org.continuousassurance.swamp.session.transport;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.cookie.CookieOrigin;
+import org.apache.http.cookie.CookieSpec;
+import org.apache.http.cookie.CookieSpecProvider;
+import org.apache.http.cookie.MalformedCookieException;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.cookie.RFC6265CookieSpecProvider;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.continuousassurance.swamp.session.util.Proxy;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A transport on the JDK's own {@link HttpURLConnection}, for environments where the Apache connection pool is
+ * unwanted. The JDK keeps connections alive and reuses them itself as long as each response is read to the end
+ * or closed.
+ * <p>Cookies are handled with the same (RFC 6265, relaxed) rules the Apache client uses for
+ * {@link org.apache.http.client.config.CookieSpecs#STANDARD}, against the cookie store in the request context,
+ * so a session works the same on either transport. Proxy credentials are sent pre-emptively for plain HTTP.
+ * For an HTTPS tunnel through a proxy the JDK only takes credentials from {@link java.net.Authenticator}.
+ * Redirects are not followed.</p>
+ */
+public class URLConnectionTransport implements HttpTransport {
+    protected static final CookieSpecProvider COOKIE_SPEC_PROVIDER =
+            new RFC6265CookieSpecProvider(RFC6265CookieSpecProvider.CompatibilityLevel.RELAXED, null);
+
+    SSLSocketFactory socketFactory;
+    Proxy proxy;
+
+    /**
+     * @param sslContext if null, the JDK default is used.
+     * @param protocols  the TLS versions to allow, or null for the JDK default.
+     * @param proxy
+     */
+    public URLConnectionTransport(SSLContext sslContext, String[] protocols, Proxy proxy) {
+        if (sslContext != null) {
+            socketFactory = new ProtocolSocketFactory(sslContext.getSocketFactory(), protocols);
+        }
+        this.proxy = proxy;
+    }
+
+    @Override
+    public CloseableHttpResponse execute(HttpHost target, HttpRequestBase request, HttpClientContext context) throws IOException {
+        URL url = new URL(target.toURI() + request.getURI().toString());
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection(getNetProxy());
+        if (connection instanceof HttpsURLConnection && socketFactory != null) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory(socketFactory);
+        }
+        connection.setRequestMethod(request.getMethod());
+        connection.setInstanceFollowRedirects(false);
+        connection.setUseCaches(false);
+        for (Header header : request.getAllHeaders()) {
+            connection.addRequestProperty(header.getName(), header.getValue());
+        }
+        if (proxy != null && proxy.isConfigured() && proxy.getUsername() != null && proxy.getPassword() != null) {
+            String credentials = proxy.getUsername() + ":" + proxy.getPassword();
+            connection.setRequestProperty("Proxy-Authorization",
+                    "Basic " + Base64.encodeBase64String(credentials.getBytes(Charset.forName("UTF-8"))));
+        }
+
+        CookieStore cookieStore = context.getCookieStore();
+        CookieSpec cookieSpec = COOKIE_SPEC_PROVIDER.create(context);
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        String path = url.getPath().length() == 0 ? "/" : url.getPath();
+        CookieOrigin origin = new CookieOrigin(url.getHost(), port, path, "https".equalsIgnoreCase(url.getProtocol()));
+        if (cookieStore != null) {
+            List<Cookie> matched = new ArrayList<>();
+            Date now = new Date();
+            for (Cookie cookie : cookieStore.getCookies()) {
+                if (!cookie.isExpired(now) && cookieSpec.match(cookie, origin)) {
+                    matched.add(cookie);
+                }
+            }
+            if (!matched.isEmpty()) {
+                for (Header header : cookieSpec.formatCookies(matched)) {
+                    connection.addRequestProperty(header.getName(), header.getValue());
+                }
+            }
+        }
+
+        if (request instanceof HttpEntityEnclosingRequest && ((HttpEntityEnclosingRequest) request).getEntity() != null) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            connection.setDoOutput(true);
+            if (entity.getContentType() != null && connection.getRequestProperty("Content-Type") == null) {
+                connection.setRequestProperty("Content-Type", entity.getContentType().getValue());
+            }
+            if (0 <= entity.getContentLength()) {
+                connection.setFixedLengthStreamingMode(entity.getContentLength());
+            } else {
+                connection.setChunkedStreamingMode(0);
+            }
+            OutputStream out = connection.getOutputStream();
+            try {
+                entity.writeTo(out);
+            } finally {
+                out.close();
+            }
+        }
+
+        int code = connection.getResponseCode();
+        URLConnectionResponse response = new URLConnectionResponse(code, connection.getResponseMessage());
+        for (Map.Entry<String, List<String>> entry : connection.getHeaderFields().entrySet()) {
+            if (entry.getKey() == null) {
+                continue; // the status line
+            }
+            for (String value : entry.getValue()) {
+                response.addHeader(entry.getKey(), value);
+            }
+        }
+        InputStream in = 400 <= code ? connection.getErrorStream() : connection.getInputStream();
+        if (in != null) {
+            BasicHttpEntity entity = new BasicHttpEntity();
+            entity.setContent(in);
+            entity.setContentLength(connection.getContentLengthLong());
+            entity.setContentType(connection.getContentType());
+            entity.setContentEncoding(connection.getContentEncoding());
+            response.setEntity(entity);
+        }
+
+        if (cookieStore != null) {
+            for (Header header : response.getHeaders("Set-Cookie")) {
+                try {
+                    for (Cookie cookie : cookieSpec.parse(header, origin)) {
+                        cookieSpec.validate(cookie, origin);
+                        cookieStore.addCookie(cookie);
+                    }
+                } catch (MalformedCookieException x) {
+                    // Skip it, as the Apache client does.
+                }
+            }
+        }
+        return response;
+    }
+
+    protected java.net.Proxy getNetProxy() {
+        if (proxy == null || !proxy.isConfigured()) {
+            return java.net.Proxy.NO_PROXY;
+        }
+        return new java.net.Proxy(java.net.Proxy.Type.HTTP, new InetSocketAddress(proxy.getHost(), proxy.getPort()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Nothing to do. The JDK manages its own keep-alive cache.
+    }
+
+    /**
+     * Closing this closes the body stream, which hands the connection back to the JDK's keep-alive cache if the
+     * body was read to the end.
+     */
+    public static class URLConnectionResponse extends BasicHttpResponse implements CloseableHttpResponse {
+        public URLConnectionResponse(int code, String reason) {
+            super(new BasicStatusLine(HttpVersion.HTTP_1_1, code, reason));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (getEntity() != null && getEntity().isStreaming()) {
+                getEntity().getContent().close();
+            }
+        }
+    }
+
+    /**
+     * Restricts the sockets made by another factory to the given protocols, e.g. just TLSv1.2.
+     */
+    public static class ProtocolSocketFactory extends SSLSocketFactory {
+        SSLSocketFactory delegate;
+        String[] protocols;
+
+        public ProtocolSocketFactory(SSLSocketFactory delegate, String[] protocols) {
+            this.delegate = delegate;
+            this.protocols = protocols;
+        }
+
+        protected Socket configure(Socket socket) {
+            if (protocols != null && socket instanceof SSLSocket) {
+                ((SSLSocket) socket).setEnabledProtocols(protocols);
+            }
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return configure(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            return configure(delegate.createSocket(s, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return configure(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return configure(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return configure(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return configure(delegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
+}
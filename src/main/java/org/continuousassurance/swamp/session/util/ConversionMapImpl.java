@@ -3,21 +3,401 @@ package org.continuousassurance.swamp.session.util;
 import edu.uiuc.ncsa.security.core.Identifier;
 import edu.uiuc.ncsa.security.storage.data.ConversionMap;
 
+import java.io.Serializable;
 import java.net.URI;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static org.continuousassurance.swamp.session.util.ConversionSchema.*;
 
 /**
 
- * A {@link HashMap} that has custom built-in conversion methods. You put objects of the required type
+ * A map that has custom built-in conversion methods. You put objects of the required type
  * into this map and retrieve then with the appropriate getter (which casts or whatever is needed).
+ * <p>
+ * Created with a {@link ConversionSchema}, the attributes of the schema are kept in fixed slots (dates, booleans
+ * and numbers as primitives) and only other keys in a {@link HashMap}, which takes a fraction of the memory of
+ * a hash entry per attribute when many objects are held. Without a schema it is an ordinary hash map.
+ * Iteration is over the schema attributes in schema order, then over the other keys.
  * <p>Created by Jeff Gaynor<br>
  * on 12/2/14 at  2:37 PM
  */
-public class ConversionMapImpl extends HashMap<String, Object> implements ConversionMap<String, Object> {
+public class ConversionMapImpl extends AbstractMap<String, Object> implements ConversionMap<String, Object>, Cloneable, Serializable {
     public static final boolean BOOLEAN_DEFAULT = false;
     public static final long LONG_DEFAULT = 0L;
 
+    ConversionSchema schema;
+    long present = 0L; // a bit per schema slot that holds a value
+    long booleans = 0L; // the values of boolean slots
+    long nulls = 0L; // set slots holding null
+    volatile long pending = 0L; // set slots holding a raw value, not yet converted
+    Object[] objects;
+    Object[] raw; // by slot
+    long[] primitives;
+    HashMap<String, Object> overflow;
+
+    public ConversionMapImpl() {
+        this(null);
+    }
+
+    public ConversionMapImpl(ConversionSchema schema) {
+        this.schema = schema;
+        if (schema != null) {
+            schema.freeze();
+        }
+    }
+
+    public ConversionSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns this map if it already uses the schema (or the schema is null), otherwise a copy that does.
+     *
+     * @param schema
+     * @return
+     */
+    public ConversionMapImpl withSchema(ConversionSchema schema) {
+        if (schema == null || schema == this.schema) {
+            return this;
+        }
+        ConversionMapImpl map = new ConversionMapImpl(schema);
+        map.putAll(this);
+        return map;
+    }
+
+    protected boolean isSet(int slot) {
+        return (present & (1L << slot)) != 0;
+    }
+
+    protected Object read(int slot) {
+        if ((pending & (1L << slot)) != 0) {
+            decode(slot);
+        }
+        if ((nulls & (1L << slot)) != 0) {
+            return null;
+        }
+        int offset = schema.offsets[slot];
+        switch (schema.types[slot]) {
+            case TYPE_DATE:
+                return new Date(primitives[offset]);
+            case TYPE_BOOLEAN:
+                return (booleans & (1L << slot)) != 0;
+            case TYPE_INTEGER:
+                return (int) primitives[offset];
+            case TYPE_LONG:
+                return primitives[offset];
+            case TYPE_OBJECT:
+            default:
+                return objects[offset];
+        }
+    }
+
+    protected void write(int slot, Object value) {
+        present |= 1L << slot;
+        dropRaw(slot);
+        store(slot, value);
+    }
+
+    /**
+     * Sets the value of a slot, leaving the other state of the map alone.
+     */
+    protected void store(int slot, Object value) {
+        if (value == null) {
+            nulls |= 1L << slot;
+            booleans &= ~(1L << slot);
+            if (objects != null && schema.isObject(slot)) {
+                objects[schema.offsets[slot]] = null;
+            }
+            return;
+        }
+        nulls &= ~(1L << slot);
+        int offset = schema.offsets[slot];
+        switch (schema.types[slot]) {
+            case TYPE_DATE:
+                primitives()[offset] = ((Date) value).getTime();
+                break;
+            case TYPE_BOOLEAN:
+                if ((Boolean) value) {
+                    booleans |= 1L << slot;
+                } else {
+                    booleans &= ~(1L << slot);
+                }
+                break;
+            case TYPE_INTEGER:
+                primitives()[offset] = (Integer) value;
+                break;
+            case TYPE_LONG:
+                primitives()[offset] = (Long) value;
+                break;
+            case TYPE_OBJECT:
+            default:
+                if (objects == null) {
+                    objects = new Object[schema.objectCount];
+                }
+                objects[offset] = value;
+        }
+    }
+
+    /**
+     * Sets an identifier or date attribute to the value as it came from the JSON, e.g. the uuid string. It is
+     * converted the first time it is read, the same way {@link ConversionSchema} would convert it, so
+     * attributes that are never read are never converted. Conversion is done under the lock of the map and
+     * published through {@link #pending}, so several threads may read a map filled this way once it has been
+     * handed over, as they may read any other map.
+     *
+     * @param key
+     * @param value
+     * @return false, with nothing set, if the key is not a schema attribute that can be converted later. The
+     * caller then converts the value and puts it as usual.
+     */
+    public boolean putRaw(String key, Object value) {
+        int slot = slot(key);
+        if (slot < 0 || !schema.isDecoded(slot)) {
+            return false;
+        }
+        if (overflow != null) {
+            overflow.remove(key);
+        }
+        if (raw == null) {
+            raw = new Object[schema.size()];
+        }
+        // the storage the converted value goes in exists before the map is shared
+        if (schema.isObject(slot)) {
+            if (objects == null) {
+                objects = new Object[schema.objectCount];
+            }
+        } else {
+            primitives();
+        }
+        raw[slot] = value;
+        present |= 1L << slot;
+        pending |= 1L << slot;
+        nulls &= ~(1L << slot);
+        return true;
+    }
+
+    /**
+     * Converts a pending slot. The value is stored before the pending bit is cleared, and clearing it is a
+     * volatile write, so a thread that sees the bit cleared also sees the value.
+     */
+    protected synchronized void decode(int slot) {
+        long bit = 1L << slot;
+        if ((pending & bit) == 0) {
+            return; // converted by another thread meanwhile
+        }
+        store(slot, schema.decode(slot, raw[slot]));
+        raw[slot] = null;
+        pending &= ~bit;
+    }
+
+    protected void dropRaw(int slot) {
+        if ((pending & (1L << slot)) != 0) {
+            pending &= ~(1L << slot);
+            raw[slot] = null;
+        }
+    }
+
+    protected long[] primitives() {
+        if (primitives == null) {
+            primitives = new long[schema.primitiveCount];
+        }
+        return primitives;
+    }
+
+    protected void clearSlot(int slot) {
+        present &= ~(1L << slot);
+        dropRaw(slot);
+        booleans &= ~(1L << slot);
+        nulls &= ~(1L << slot);
+        if (objects != null && schema.isObject(slot)) {
+            objects[schema.offsets[slot]] = null;
+        }
+    }
+
+    protected int slot(Object key) {
+        return schema == null ? -1 : schema.slot(key);
+    }
+
+    @Override
+    public int size() {
+        return Long.bitCount(present) + (overflow == null ? 0 : overflow.size());
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int slot = slot(key);
+        if (0 <= slot && isSet(slot)) {
+            return true;
+        }
+        return overflow != null && overflow.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        int slot = slot(key);
+        if (0 <= slot && isSet(slot)) {
+            return read(slot);
+        }
+        return overflow == null ? null : overflow.get(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int slot = slot(key);
+        if (slot < 0) {
+            if (overflow == null) {
+                overflow = new HashMap<>();
+            }
+            return overflow.put(key, value);
+        }
+        Object old = null;
+        if (isSet(slot)) {
+            old = read(slot);
+        } else if (overflow != null && overflow.containsKey(key)) {
+            old = overflow.get(key);
+        }
+        if (schema.accepts(slot, value)) {
+            if (overflow != null) {
+                overflow.remove(key);
+            }
+            write(slot, value);
+        } else {
+            if (isSet(slot)) {
+                clearSlot(slot);
+            }
+            if (overflow == null) {
+                overflow = new HashMap<>();
+            }
+            overflow.put(key, value);
+        }
+        return old;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int slot = slot(key);
+        if (0 <= slot && isSet(slot)) {
+            Object old = read(slot);
+            clearSlot(slot);
+            return old;
+        }
+        return overflow == null ? null : overflow.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        present = 0L;
+        booleans = 0L;
+        nulls = 0L;
+        pending = 0L;
+        raw = null;
+        if (objects != null) {
+            Arrays.fill(objects, null);
+        }
+        overflow = null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public int size() {
+                return ConversionMapImpl.this.size();
+            }
+
+            @Override
+            public void clear() {
+                ConversionMapImpl.this.clear();
+            }
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+
+    /**
+     * Walks the set slots, then the overflow map.
+     */
+    class EntryIterator implements Iterator<Entry<String, Object>> {
+        int next = nextSlot(0);
+        int last = -1;
+        Iterator<Entry<String, Object>> others;
+
+        int nextSlot(int from) {
+            long rest = from < 64 ? present & (-1L << from) : 0L;
+            return rest == 0 ? -1 : Long.numberOfTrailingZeros(rest);
+        }
+
+        Iterator<Entry<String, Object>> others() {
+            if (others == null) {
+                others = overflow == null ? null : overflow.entrySet().iterator();
+            }
+            return others;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return 0 <= next || (others() != null && others.hasNext());
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (0 <= next) {
+                last = next;
+                next = nextSlot(next + 1);
+                return new SimpleEntry<String, Object>(schema.getKey(last), read(last)) {
+                    @Override
+                    public Object setValue(Object value) {
+                        put(getKey(), value);
+                        return super.setValue(value);
+                    }
+                };
+            }
+            if (others() == null) {
+                throw new NoSuchElementException();
+            }
+            last = -1;
+            return others.next();
+        }
+
+        @Override
+        public void remove() {
+            if (0 <= last) {
+                if (!isSet(last)) {
+                    throw new IllegalStateException();
+                }
+                clearSlot(last);
+            } else if (others != null) {
+                others.remove();
+            } else {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    @Override
+    public synchronized ConversionMapImpl clone() {
+        try {
+            ConversionMapImpl map = (ConversionMapImpl) super.clone();
+            map.objects = objects == null ? null : objects.clone();
+            map.primitives = primitives == null ? null : primitives.clone();
+            map.raw = raw == null ? null : raw.clone();
+            map.overflow = overflow == null ? null : new HashMap<>(overflow);
+            return map;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e.toString());
+        }
+    }
+
 
     @Override
     public Date getDate(java.lang.String key) {
@@ -0,0 +1,186 @@
+package org.continuousassurance.swamp.session.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The attributes a kind of {@link org.continuousassurance.swamp.api.SwampThing} is known to have, each with the
+ * type of value it holds. A {@link ConversionMapImpl} created with a schema keeps these attributes in fixed
+ * slots rather than in hash entries, with dates, booleans and numbers stored as primitives. Any other key
+ * still works, it just goes into an ordinary map alongside. Identifiers and dates may also be stored as the
+ * raw JSON value and only converted when first read, see {@link ConversionMapImpl#putRaw(String, Object)}.
+ * <p>
+ * A schema is built once, in a static initializer, by chaining the methods below. It may not be changed
+ * after the first map using it has been created. At most {@link #MAX_SLOTS} attributes may be declared; a key
+ * declared twice keeps its first type.
+ */
+public class ConversionSchema implements Serializable {
+    static final long serialVersionUID = 1L;
+
+    public static final int MAX_SLOTS = 64;
+
+    public static final int TYPE_OBJECT = 0;
+    public static final int TYPE_DATE = 1;
+    public static final int TYPE_BOOLEAN = 2;
+    public static final int TYPE_INTEGER = 3;
+    public static final int TYPE_LONG = 4;
+    public static final int TYPE_IDENTIFIER = 5;
+
+    Map<String, Integer> slots = new HashMap<>();
+    List<String> keys = new ArrayList<>();
+    int[] types = new int[MAX_SLOTS];
+    int[] offsets = new int[MAX_SLOTS]; // into the object or the primitive array of a map
+    int objectCount = 0;
+    int primitiveCount = 0;
+    volatile boolean frozen = false;
+
+    /**
+     * Attributes with any type of value, e.g. strings, identifiers or JSON arrays.
+     */
+    public ConversionSchema objects(String... keys) {
+        return add(TYPE_OBJECT, keys);
+    }
+
+    /**
+     * Attributes holding an {@link edu.uiuc.ncsa.security.core.Identifier}, which may be set from the raw
+     * uuid string and converted when first read.
+     */
+    public ConversionSchema identifiers(String... keys) {
+        return add(TYPE_IDENTIFIER, keys);
+    }
+
+    /**
+     * Attributes holding a {@link java.util.Date}, which may be set from the raw JSON value and parsed when
+     * first read.
+     */
+    public ConversionSchema dates(String... keys) {
+        return add(TYPE_DATE, keys);
+    }
+
+    public ConversionSchema booleans(String... keys) {
+        return add(TYPE_BOOLEAN, keys);
+    }
+
+    public ConversionSchema integers(String... keys) {
+        return add(TYPE_INTEGER, keys);
+    }
+
+    public ConversionSchema longs(String... keys) {
+        return add(TYPE_LONG, keys);
+    }
+
+    protected synchronized ConversionSchema add(int type, String... newKeys) {
+        if (frozen) {
+            throw new IllegalStateException("Error: the schema is in use and cannot be changed");
+        }
+        for (String key : newKeys) {
+            if (slots.containsKey(key)) {
+                continue;
+            }
+            if (keys.size() == MAX_SLOTS) {
+                throw new IllegalStateException("Error: a schema has at most " + MAX_SLOTS + " attributes");
+            }
+            int slot = keys.size();
+            keys.add(key);
+            slots.put(key, slot);
+            types[slot] = type;
+            switch (type) {
+                case TYPE_OBJECT:
+                case TYPE_IDENTIFIER:
+                    offsets[slot] = objectCount++;
+                    break;
+                case TYPE_BOOLEAN:
+                    offsets[slot] = -1; // kept in a bit of the map
+                    break;
+                default:
+                    offsets[slot] = primitiveCount++;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Called by each map created with this schema.
+     */
+    void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * The slot of the key, or -1 if it is not in this schema.
+     */
+    int slot(Object key) {
+        Integer slot = slots.get(key);
+        return slot == null ? -1 : slot;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public String getKey(int slot) {
+        return keys.get(slot);
+    }
+
+    public int getType(int slot) {
+        return types[slot];
+    }
+
+    /**
+     * Whether the value can be kept in a slot of this type. Any slot takes null, primitive slots otherwise
+     * only take their exact boxed type; anything else under the same key goes in the overflow map so that it
+     * comes back unchanged.
+     */
+    boolean accepts(int slot, Object value) {
+        if (value == null) {
+            return true;
+        }
+        switch (types[slot]) {
+            case TYPE_OBJECT:
+            case TYPE_IDENTIFIER:
+                return true;
+            case TYPE_DATE:
+                return value.getClass() == java.util.Date.class;
+            case TYPE_BOOLEAN:
+                return value instanceof Boolean;
+            case TYPE_INTEGER:
+                return value instanceof Integer;
+            case TYPE_LONG:
+                return value instanceof Long;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Whether the slot is kept in the object array of a map.
+     */
+    boolean isObject(int slot) {
+        return types[slot] == TYPE_OBJECT || types[slot] == TYPE_IDENTIFIER;
+    }
+
+    /**
+     * Whether values of the slot may be stored raw and converted on first access.
+     */
+    boolean isDecoded(int slot) {
+        return types[slot] == TYPE_IDENTIFIER || types[slot] == TYPE_DATE;
+    }
+
+    /**
+     * Converts a raw value as it came from the JSON to the value the slot holds, the same way the handlers
+     * do when they set the attribute directly.
+     */
+    Object decode(int slot, Object raw) {
+        switch (types[slot]) {
+            case TYPE_IDENTIFIER:
+                return raw == null ? null : SWAMPIdentifiers.toIdentifier(raw.toString());
+            case TYPE_DATE:
+                return Dates.toSWAMPDate(raw);
+            default:
+                return raw;
+        }
+    }
+}
@@ -2,31 +2,87 @@ package org.continuousassurance.swamp.session.util;
 
 import net.sf.json.JSONObject;
 
-import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
 
 /**
  * At this point, we need a utility to convert to and from SWAMP dates, which are in no standard format.
+ * <p>
+ * All methods may be called from several threads at once. Dates in the usual SWAMP form,
+ * <code>yyyy-MM-dd HH:mm:ss</code> in UTC, are converted arithmetically without a formatter or a calendar;
+ * anything else goes through a {@link SimpleDateFormat} kept per thread, and the results of that are cached
+ * since a list of records tends to repeat the same few timestamps.
  * <p>Created by Jeff Gaynor<br>
  * on 12/2/14 at  12:11 PM
  */
 public class Dates {
+    public static final String SWAMP_DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    /**
+     * Returned by {@link #toSWAMPTime(String)} for a missing or unparseable date.
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    static final int CACHE_SIZE = 256; // a power of 2
+
+    protected static final SimpleDateFormat DEFAULT_FORMATTER = newSWAMPFormatter();
+
+    protected static volatile SimpleDateFormat formatter = DEFAULT_FORMATTER;
+
+    /**
+     * The formatter each thread uses, and the one it was copied from, to notice {@link #setFormatter(SimpleDateFormat)}.
+     */
+    static final ThreadLocal<SimpleDateFormat[]> formatters = new ThreadLocal<SimpleDateFormat[]>() {
+        @Override
+        protected SimpleDateFormat[] initialValue() {
+            return new SimpleDateFormat[2];
+        }
+    };
+
+    /**
+     * A parsed string and its time. Immutable, so entries can be shared between threads without locking.
+     */
+    static final class CacheEntry {
+        final String raw;
+        final long time;
+
+        CacheEntry(String raw, long time) {
+            this.raw = raw;
+            this.time = time;
+        }
+    }
+
+    static volatile CacheEntry[] cache = new CacheEntry[CACHE_SIZE];
 
-    protected static SimpleDateFormat formatter = null;
+    protected static SimpleDateFormat newSWAMPFormatter() {
+        SimpleDateFormat f = new SimpleDateFormat(SWAMP_DATE_PATTERN);
+        f.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return f;
+    }
 
+    /**
+     * Returns the formatter of the current thread. It must not be handed to other threads.
+     *
+     * @return
+     */
     public static SimpleDateFormat getFormatter() {
-        if (formatter == null) {
-            formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+        SimpleDateFormat prototype = formatter;
+        SimpleDateFormat[] local = formatters.get();
+        if (local[0] != prototype) {
+            local[0] = prototype;
+            local[1] = (SimpleDateFormat) prototype.clone();
         }
-        return formatter;
+        return local[1];
     }
 
+    /**
+     * Sets the format of SWAMP dates. Each thread parses with its own copy of it. Null restores the default.
+     *
+     * @param formatter
+     */
     public static void setFormatter(SimpleDateFormat formatter) {
-        Dates.formatter = formatter;
+        Dates.formatter = formatter == null ? DEFAULT_FORMATTER : (SimpleDateFormat) formatter.clone();
+        cache = new CacheEntry[CACHE_SIZE];
     }
 
     /**
@@ -36,30 +92,130 @@ public class Dates {
      * @return
      */
     public static Date toSWAMPDate(String rawDate) {
-        if(rawDate == null || rawDate.length() == 0) return null;
-        if(rawDate.equals("null")) return null; // In case JSON returns something odd.
+        long time = toSWAMPTime(rawDate);
+        return time == NO_DATE ? null : new Date(time);
+    }
+
+    /**
+     * Parses the given raw string as a SWAMP date, returning ms. since the epoch or {@link #NO_DATE}.
+     * @param rawDate
+     * @return
+     */
+    public static long toSWAMPTime(String rawDate) {
+        if(rawDate == null || rawDate.length() == 0) return NO_DATE;
+        if(rawDate.equals("null")) return NO_DATE; // In case JSON returns something odd.
+        if (formatter == DEFAULT_FORMATTER) {
+            long time = parseSWAMPTime(rawDate);
+            if (time != NO_DATE) {
+                return time;
+            }
+        }
+        CacheEntry[] entries = cache;
+        int i = rawDate.hashCode() & (CACHE_SIZE - 1);
+        CacheEntry entry = entries[i];
+        if (entry != null && entry.raw.equals(rawDate)) {
+            return entry.time;
+        }
+        long time;
         try {
-            Date newDate = getFormatter().parse(rawDate);
-            return newDate;
+            time = getFormatter().parse(rawDate).getTime();
         } catch (Throwable t) {
             //t.printStackTrace();
             //DebugUtil.say("Date not parsed.");
-            return null;
+            time = NO_DATE;
+        }
+        entries[i] = new CacheEntry(rawDate, time);
+        return time;
+    }
+
+    /**
+     * The fast path: <code>yyyy-MM-dd HH:mm:ss</code> in UTC with every field in range, otherwise
+     * {@link #NO_DATE} and the formatter decides, since it is lenient about e.g. Feb. 30 or trailing text.
+     */
+    static long parseSWAMPTime(String s) {
+        if (s.length() != 19 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != ' '
+                || s.charAt(13) != ':' || s.charAt(16) != ':') {
+            return NO_DATE;
         }
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+        int hour = digits(s, 11, 2);
+        int minute = digits(s, 14, 2);
+        int second = digits(s, 17, 2);
+        // before 1900 the formatter's calendar may not be proleptic Gregorian
+        if (year < 1900 || month < 1 || 12 < month || day < 1 || daysInMonth(year, month) < day
+                || hour < 0 || 23 < hour || minute < 0 || 59 < minute || second < 0 || 59 < second) {
+            return NO_DATE;
+        }
+        return ((daysSinceEpoch(year, month, day) * 24L + hour) * 60L + minute) * 60000L + second * 1000L;
+    }
+
+    /**
+     * The value of the decimal digits, or -1 if any character is not one.
+     */
+    static int digits(String s, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || 9 < d) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    static boolean isLeapYear(int year) {
+        return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days from 1970-01-01 to a Gregorian date, with March as the first month of the year so that leap days
+     * come last.
+     */
+    static long daysSinceEpoch(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400; // y is positive
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468L;
     }
 
     public static Date toSWAMPDate(JSONObject json, String key){
-        if(json.get(key) instanceof JSONObject){
-            JSONObject d = json.getJSONObject(key);
-            return toSWAMPDate(d.getString("date"));
+        return toSWAMPDate(json.get(key));
+    }
+
+    /**
+     * Converts a date as it appears as a value in SWAMP JSON: a string, an object with a date string
+     * or a number of ms. Anything else is null.
+     * @param value
+     * @return
+     */
+    public static Date toSWAMPDate(Object value){
+        if(value instanceof JSONObject){
+            return toSWAMPDate(((JSONObject) value).getString("date"));
         }
-        if(json.get(key) instanceof String){
-            return toSWAMPDate(json.getString(key));
+        if(value instanceof String){
+            return toSWAMPDate((String) value);
         }
-        if(json.get(key) instanceof Long){
-            Date d = new Date();
-            d.setTime(json.getLong(key));
-            return d;
+        if(value instanceof Long){
+            return new Date((Long) value);
         }
         return null;
     }
@@ -0,0 +1,41 @@
+package org.continuousassurance.swamp.session.util;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.continuousassurance.swamp.exceptions.NoJSONReturnedException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * The original decoder: reads the whole body into a string and hands it to json-lib. Kept for anyone who needs
+ * json-lib's exact (and more forgiving) parsing.
+ */
+public class JSONLibDecoder implements ResponseDecoder {
+    @Override
+    public JSON decode(Reader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[4096];
+        int n;
+        while ((n = reader.read(buffer)) != -1) {
+            sb.append(buffer, 0, n);
+        }
+        return toJSON(sb.toString());
+    }
+
+    public static JSON toJSON(String raw) {
+        if (raw == null || raw.length() == 0) {
+            return null;
+        }
+        JSON json;
+        if (raw.charAt(0) == '[') {
+            json = JSONArray.fromObject(raw);
+        } else if (raw.charAt(0) == '{') {
+            json = JSONObject.fromObject(raw);
+        } else {
+            throw new NoJSONReturnedException(raw);
+        }
+        return json;
+    }
+}
@@ -0,0 +1,26 @@
+package org.continuousassurance.swamp.session.util;
+
+import net.sf.json.JSON;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Turns the body of a response from the SWAMP into JSON. {@link org.continuousassurance.swamp.session.SWAMPHttpClient}
+ * hands every body it parses to one of these, so the parsing strategy can be swapped without touching the handlers.
+ *
+ * @see StreamingJSONDecoder
+ * @see JSONLibDecoder
+ */
+public interface ResponseDecoder {
+    /**
+     * Decodes the body read from the given reader. This returns null if the body is empty and throws a
+     * {@link org.continuousassurance.swamp.exceptions.NoJSONReturnedException}, whose message is the body, if the
+     * body is not a JSON object or array.
+     *
+     * @param reader
+     * @return
+     * @throws IOException
+     */
+    JSON decode(Reader reader) throws IOException;
+}
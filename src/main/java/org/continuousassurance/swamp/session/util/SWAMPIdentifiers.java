@@ -10,8 +10,15 @@ import edu.uiuc.ncsa.security.core.util.BasicIdentifier;
 public class SWAMPIdentifiers {
     public static String IDENTIFIER_CAPUT = "urn:uuid:";
 
+    /**
+     * Uuids become a shared {@link UuidIdentifier}, anything else (some SWAMP "uuids" are integers) a
+     * {@link BasicIdentifier}.
+     * @param x
+     * @return
+     */
     public static Identifier toIdentifier(String x) {
-        return BasicIdentifier.newID(x);
+        Identifier id = UuidIdentifier.newID(x);
+        return id == null ? BasicIdentifier.newID(x) : id;
     }
 
 
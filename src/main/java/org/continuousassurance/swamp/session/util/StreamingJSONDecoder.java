@@ -0,0 +1,311 @@
+package org.continuousassurance.swamp.session.util;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+import net.sf.json.util.JSONUtils;
+import org.continuousassurance.swamp.exceptions.NoJSONReturnedException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * A {@link ResponseDecoder} that tokenizes the body straight off the response stream and builds the json-lib
+ * objects as it goes, so the body is never held as a string and json-lib's own tokenizer is skipped. The values
+ * it produces are the same types json-lib would produce (Integer/Long/BigInteger/Double, {@link JSONNull}, etc.)
+ * and repeated keys accumulate into an array just as they do in json-lib.
+ * <p>For long lists use {@link #forEach(Reader, ElementHandler)}, which hands back each element of the top
+ * level array as soon as it is parsed so the caller can bind it and let it go, rather than holding the
+ * whole array in memory.</p>
+ * <p>This class is stateless and thread safe.</p>
+ */
+public class StreamingJSONDecoder implements ResponseDecoder {
+
+    /**
+     * Receives the elements of a top level JSON array, one at a time and in order.
+     */
+    public interface ElementHandler {
+        void handle(Object element);
+    }
+
+    @Override
+    public JSON decode(Reader reader) throws IOException {
+        Tokenizer tokenizer = new Tokenizer(reader);
+        int c = tokenizer.nextClean();
+        switch (c) {
+            case -1:
+                return null;
+            case '{':
+                return tokenizer.readObject();
+            case '[':
+                return tokenizer.readArray(null);
+            default:
+                throw new NoJSONReturnedException(tokenizer.rest(c));
+        }
+    }
+
+    /**
+     * Parses the body and passes each element of the top level array to the handler. If the body is a single
+     * object, that is passed instead and an empty body calls the handler not at all.
+     *
+     * @param reader
+     * @param handler
+     * @throws IOException
+     */
+    public void forEach(Reader reader, ElementHandler handler) throws IOException {
+        Tokenizer tokenizer = new Tokenizer(reader);
+        int c = tokenizer.nextClean();
+        switch (c) {
+            case -1:
+                return;
+            case '{':
+                handler.handle(tokenizer.readObject());
+                return;
+            case '[':
+                tokenizer.readArray(handler);
+                return;
+            default:
+                throw new NoJSONReturnedException(tokenizer.rest(c));
+        }
+    }
+
+    /**
+     * A minimal pull tokenizer over a buffered reader. Methods named read* are called just after the opening
+     * character of the item has been consumed.
+     */
+    protected static class Tokenizer {
+        Reader reader;
+        char[] buffer = new char[8192];
+        int position = 0;
+        int limit = 0;
+        StringBuilder scratch = new StringBuilder();
+
+        public Tokenizer(Reader reader) {
+            this.reader = reader;
+        }
+
+        int read() throws IOException {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+
+        void unread() {
+            position--;
+        }
+
+        int nextClean() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+            return c;
+        }
+
+        JSONException error(String message) {
+            return new JSONException(message);
+        }
+
+        /**
+         * Everything left in the stream, starting with the given character. Used for the error message if the
+         * body turns out not to be JSON (e.g. a plain text message from the server).
+         */
+        String rest(int first) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            sb.append((char) first);
+            int c;
+            while ((c = read()) != -1) {
+                sb.append((char) c);
+            }
+            return sb.toString();
+        }
+
+        JSONObject readObject() throws IOException {
+            JSONObject jsonObject = new JSONObject();
+            int c = nextClean();
+            if (c == '}') {
+                return jsonObject;
+            }
+            while (true) {
+                if (c != '"') {
+                    throw error("Expected a quoted key in a JSON object");
+                }
+                String key = readString();
+                if (nextClean() != ':') {
+                    throw error("Expected ':' after the key \"" + key + "\"");
+                }
+                jsonObject.accumulate(key, readValue(nextClean()));
+                c = nextClean();
+                if (c == '}') {
+                    return jsonObject;
+                }
+                if (c != ',') {
+                    throw error("Expected ',' or '}' after the value for \"" + key + "\"");
+                }
+                c = nextClean();
+            }
+        }
+
+        /**
+         * Reads an array. If there is a handler, each element is passed to it and not kept, so null is returned.
+         */
+        JSONArray readArray(ElementHandler handler) throws IOException {
+            JSONArray jsonArray = handler == null ? new JSONArray() : null;
+            int c = nextClean();
+            if (c == ']') {
+                return jsonArray;
+            }
+            while (true) {
+                Object value = readValue(c);
+                if (handler == null) {
+                    jsonArray.add(value);
+                } else {
+                    handler.handle(value);
+                }
+                c = nextClean();
+                if (c == ']') {
+                    return jsonArray;
+                }
+                if (c != ',') {
+                    throw error("Expected ',' or ']' in a JSON array");
+                }
+                c = nextClean();
+            }
+        }
+
+        Object readValue(int c) throws IOException {
+            switch (c) {
+                case '{':
+                    return readObject();
+                case '[':
+                    return readArray(null);
+                case '"':
+                    String s = readString();
+                    // json-lib turns strings that look like JSON into JSON when they are added, unless they are quoted.
+                    return JSONUtils.mayBeJSON(s) ? "\"" + s + "\"" : s;
+                case -1:
+                    throw error("Unexpected end of JSON");
+                default:
+                    unread();
+                    return readLiteral(readBareToken());
+            }
+        }
+
+        String readString() throws IOException {
+            StringBuilder sb = scratch;
+            sb.setLength(0);
+            while (true) {
+                int c = read();
+                switch (c) {
+                    case -1:
+                        throw error("Unterminated string");
+                    case '"':
+                        return sb.toString();
+                    case '\\':
+                        c = read();
+                        switch (c) {
+                            case 'b':
+                                sb.append('\b');
+                                break;
+                            case 't':
+                                sb.append('\t');
+                                break;
+                            case 'n':
+                                sb.append('\n');
+                                break;
+                            case 'f':
+                                sb.append('\f');
+                                break;
+                            case 'r':
+                                sb.append('\r');
+                                break;
+                            case 'u':
+                                int code = 0;
+                                for (int i = 0; i < 4; i++) {
+                                    int digit = Character.digit(read(), 16);
+                                    if (digit < 0) {
+                                        throw error("Bad unicode escape in string");
+                                    }
+                                    code = (code << 4) + digit;
+                                }
+                                sb.append((char) code);
+                                break;
+                            case -1:
+                                throw error("Unterminated string");
+                            default:
+                                sb.append((char) c); // covers \" \\ and \/
+                        }
+                        break;
+                    default:
+                        sb.append((char) c);
+                }
+            }
+        }
+
+        String readBareToken() throws IOException {
+            StringBuilder sb = scratch;
+            sb.setLength(0);
+            int c;
+            while ((c = read()) != -1) {
+                if (c == ',' || c == '}' || c == ']' || c == ':' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                    unread();
+                    break;
+                }
+                sb.append((char) c);
+            }
+            return sb.toString();
+        }
+
+        Object readLiteral(String token) {
+            if (token.equals("true")) {
+                return Boolean.TRUE;
+            }
+            if (token.equals("false")) {
+                return Boolean.FALSE;
+            }
+            if (token.equals("null")) {
+                return JSONNull.getInstance();
+            }
+            try {
+                return toNumber(token);
+            } catch (NumberFormatException x) {
+                throw error("Unexpected token \"" + token + "\"");
+            }
+        }
+
+        /**
+         * Numbers get the narrowest type that holds them, as json-lib does.
+         */
+        Object toNumber(String token) {
+            if (token.indexOf('.') != -1 || token.indexOf('e') != -1 || token.indexOf('E') != -1) {
+                Double d = Double.valueOf(token);
+                if (d.isInfinite()) {
+                    return new BigDecimal(token);
+                }
+                return d;
+            }
+            if (token.length() < 19) {
+                long value = Long.parseLong(token);
+                if (Integer.MIN_VALUE <= value && value <= Integer.MAX_VALUE) {
+                    return Integer.valueOf((int) value);
+                }
+                return Long.valueOf(value);
+            }
+            BigInteger b = new BigInteger(token);
+            if (b.bitLength() < 64) {
+                return Long.valueOf(b.longValue());
+            }
+            return b;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.continuousassurance.swamp.session.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one instance of each string attribute value that handlers read, e.g. package, tool and platform
+ * names, version strings and statuses, which repeat across every assessment record. Only strings of up to
+ * {@link #MAX_LENGTH} characters are pooled, longer ones (descriptions, notes) rarely repeat.
+ * <p>
+ * The pool holds at most {@link #MAX_ENTRIES_PROPERTY} strings (default {@link #DEFAULT_MAX_ENTRIES}, 0 turns it
+ * off). When it is full it is emptied and refilled by what is read next, so it follows the current working
+ * set rather than keeping the first values it saw. It may be used from several threads at once.
+ */
+public class StringPool {
+    public static final String MAX_ENTRIES_PROPERTY = "swamp-string-pool-size";
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+    public static final int MAX_LENGTH = 128;
+
+    ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<>();
+    int maxEntries;
+
+    public StringPool() {
+        this(SystemProperties.getInt(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES));
+    }
+
+    public StringPool(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Returns the pooled instance equal to the string, adding it if there is none.
+     *
+     * @param s
+     * @return
+     */
+    public String intern(String s) {
+        if (s == null || maxEntries == 0 || MAX_LENGTH < s.length()) {
+            return s;
+        }
+        String pooled = strings.get(s);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (maxEntries <= strings.size()) {
+            strings.clear();
+        }
+        pooled = strings.putIfAbsent(s, s);
+        return pooled == null ? s : pooled;
+    }
+
+    public int size() {
+        return strings.size();
+    }
+
+    public void clear() {
+        strings.clear();
+    }
+}
@@ -0,0 +1,32 @@
+package org.continuousassurance.swamp.session.util;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Reads the numeric system properties that tune the client, e.g. -Dswamp-max-connections=50 or
+ * -Dswamp-catalog-ttl=0. A value that is not a number is ignored with a warning and the default is used.
+ */
+public class SystemProperties {
+    protected static final Logger LOGGER = Logger.getLogger(SystemProperties.class);
+
+    public static long getLong(String name, long defaultValue) {
+        String x = System.getProperty(name);
+        if (x != null) {
+            try {
+                return Long.parseLong(x.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Ignoring bad value for " + name + ": " + x);
+            }
+        }
+        return defaultValue;
+    }
+
+    public static int getInt(String name, int defaultValue) {
+        long x = getLong(name, defaultValue);
+        if (x < Integer.MIN_VALUE || Integer.MAX_VALUE < x) {
+            LOGGER.warn("Ignoring bad value for " + name + ": " + x);
+            return defaultValue;
+        }
+        return (int) x;
+    }
+}
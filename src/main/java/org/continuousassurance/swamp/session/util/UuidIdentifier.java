@@ -0,0 +1,148 @@
+package org.continuousassurance.swamp.session.util;
+
+import edu.uiuc.ncsa.security.core.Identifier;
+import edu.uiuc.ncsa.security.core.util.BasicIdentifier;
+
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * An identifier for a SWAMP uuid, kept as two longs plus the uuid string rather than as a parsed {@link URI}.
+ * Instances are interned: {@link #newID(String)} returns the same object for the same uuid for as long as
+ * anything refers to it, so the tool, platform and project uuids repeated across thousands of records are one
+ * object each, and their strings compare by identity.
+ * <p>
+ * This is a {@link BasicIdentifier} so it can stand in wherever one is expected. It is equal to, and hashes
+ * like, a {@link BasicIdentifier} made from the same string. The URI is only built if asked for.
+ */
+public class UuidIdentifier extends BasicIdentifier {
+    static final long serialVersionUID = 1L;
+
+    /**
+     * Interned identifiers, weakly held, keyed by themselves.
+     */
+    static final Map<UuidIdentifier, WeakReference<UuidIdentifier>> interned = new WeakHashMap<>();
+
+    final long mostSignificantBits;
+    final long leastSignificantBits;
+    final String uuid;
+
+    protected UuidIdentifier(long mostSignificantBits, long leastSignificantBits, String uuid) {
+        super((URI) null);
+        this.mostSignificantBits = mostSignificantBits;
+        this.leastSignificantBits = leastSignificantBits;
+        this.uuid = uuid;
+    }
+
+    /**
+     * Returns the interned identifier for the uuid, or null if the string is not a uuid in canonical form
+     * (8-4-4-4-12 lower case hex digits), in which case the caller should use another kind of identifier.
+     *
+     * @param uuid
+     * @return
+     */
+    public static UuidIdentifier newID(String uuid) {
+        if (uuid == null || uuid.length() != 36 || uuid.charAt(8) != '-' || uuid.charAt(13) != '-'
+                || uuid.charAt(18) != '-' || uuid.charAt(23) != '-') {
+            return null;
+        }
+        long msb = hex(uuid, 0, 8);
+        long msb2 = hex(uuid, 9, 4);
+        long msb3 = hex(uuid, 14, 4);
+        long lsb = hex(uuid, 19, 4);
+        long lsb2 = hex(uuid, 24, 12);
+        if (msb < 0 || msb2 < 0 || msb3 < 0 || lsb < 0 || lsb2 < 0) {
+            return null;
+        }
+        return intern(new UuidIdentifier(msb << 32 | msb2 << 16 | msb3, lsb << 48 | lsb2, uuid));
+    }
+
+    /**
+     * The value of the lower case hex digits, or -1 if any character is not one.
+     */
+    static long hex(String s, int start, int length) {
+        long value = 0;
+        for (int i = start; i < start + length; i++) {
+            char c = s.charAt(i);
+            int d;
+            if ('0' <= c && c <= '9') {
+                d = c - '0';
+            } else if ('a' <= c && c <= 'f') {
+                d = c - 'a' + 10;
+            } else {
+                return -1;
+            }
+            value = value << 4 | d;
+        }
+        return value;
+    }
+
+    static UuidIdentifier intern(UuidIdentifier id) {
+        synchronized (interned) {
+            WeakReference<UuidIdentifier> ref = interned.get(id);
+            UuidIdentifier existing = ref == null ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+            interned.put(id, new WeakReference<>(id));
+            return id;
+        }
+    }
+
+    public long getMostSignificantBits() {
+        return mostSignificantBits;
+    }
+
+    public long getLeastSignificantBits() {
+        return leastSignificantBits;
+    }
+
+    @Override
+    public String toString() {
+        return uuid;
+    }
+
+    @Override
+    public URI getUri() {
+        return URI.create(uuid);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof UuidIdentifier) {
+            UuidIdentifier other = (UuidIdentifier) obj;
+            return mostSignificantBits == other.mostSignificantBits
+                    && leastSignificantBits == other.leastSignificantBits;
+        }
+        return obj instanceof BasicIdentifier && uuid.equals(obj.toString());
+    }
+
+    /**
+     * The hash of the string, which is also the hash of the URI of a {@link BasicIdentifier} for a uuid.
+     */
+    @Override
+    public int hashCode() {
+        return uuid.hashCode();
+    }
+
+    @Override
+    public int compareTo(Object obj) {
+        if (!(obj instanceof Identifier)) {
+            throw new ClassCastException("The given object is of type " + obj.getClass().getName()
+                    + " and cannot be compared to an Identifier");
+        }
+        return uuid.compareTo(obj.toString());
+    }
+
+    /**
+     * Deserialized identifiers are interned too.
+     */
+    protected Object readResolve() {
+        return intern(this);
+    }
+}
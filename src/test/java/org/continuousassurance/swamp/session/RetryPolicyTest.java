@@ -0,0 +1,152 @@
+package org.continuousassurance.swamp.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Date;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+/**
+ * Checks which requests {@link RetryPolicy} retries and how long it waits.
+ */
+public class RetryPolicyTest {
+
+    static HttpResponse response(int code, String retryAfter) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, code, "");
+        if (retryAfter != null) {
+            response.setHeader("Retry-After", retryAfter);
+        }
+        return response;
+    }
+
+    @Test
+    public void idempotentMethods() {
+        RetryPolicy policy = new RetryPolicy(4, 100L, 1000L);
+        for (String method : new String[]{"GET", "HEAD", "OPTIONS", "DELETE"}) {
+            assertTrue(method, policy.isIdempotent(method));
+            assertTrue(method, policy.isRetryable(method, false));
+        }
+        for (String method : new String[]{"POST", "PUT", "PATCH"}) {
+            assertFalse(method, policy.isIdempotent(method));
+            assertFalse(method, policy.isRetryable(method, false));
+            assertTrue(method, policy.isRetryable(method, true));
+        }
+    }
+
+    @Test
+    public void nonIdempotentOptIn() {
+        RetryPolicy policy = new RetryPolicy(4, 100L, 1000L);
+        policy.setRetryNonIdempotent(true);
+        assertTrue(policy.isRetryable("POST", false));
+
+        String old = System.getProperty(RetryPolicy.RETRY_NON_IDEMPOTENT_PROPERTY);
+        try {
+            System.setProperty(RetryPolicy.RETRY_NON_IDEMPOTENT_PROPERTY, "true");
+            assertTrue(new RetryPolicy().isRetryable("POST", false));
+            System.clearProperty(RetryPolicy.RETRY_NON_IDEMPOTENT_PROPERTY);
+            assertFalse(new RetryPolicy().isRetryable("POST", false));
+        } finally {
+            if (old == null) {
+                System.clearProperty(RetryPolicy.RETRY_NON_IDEMPOTENT_PROPERTY);
+            } else {
+                System.setProperty(RetryPolicy.RETRY_NON_IDEMPOTENT_PROPERTY, old);
+            }
+        }
+    }
+
+    @Test
+    public void singleAttemptNeverRetries() {
+        assertFalse(RetryPolicy.NO_RETRY.isRetryable("GET", true));
+        assertFalse(new RetryPolicy(0, 100L, 1000L).isRetryable("GET", false));
+        assertEquals(1, new RetryPolicy(-3, 100L, 1000L).getMaxAttempts());
+    }
+
+    @Test
+    public void statusCodes() {
+        RetryPolicy policy = new RetryPolicy(4, 100L, 1000L);
+        for (int code : new int[]{429, 502, 503, 504}) {
+            assertTrue(Integer.toString(code), policy.isRetryable(code));
+        }
+        for (int code : new int[]{200, 304, 400, 401, 403, 404, 409, 500, 501}) {
+            assertFalse(Integer.toString(code), policy.isRetryable(code));
+        }
+    }
+
+    @Test
+    public void exceptions() {
+        RetryPolicy policy = new RetryPolicy(4, 100L, 1000L);
+        // never reached the server, always safe
+        assertTrue(policy.isRetryable(new ConnectException(), false));
+        assertTrue(policy.isRetryable(new ConnectTimeoutException(), false));
+        // may have reached it, only for idempotent requests
+        IOException[] maybeSent = {new NoHttpResponseException(""), new SocketTimeoutException(), new SocketException()};
+        for (IOException e : maybeSent) {
+            assertTrue(e.toString(), policy.isRetryable(e, true));
+            assertFalse(e.toString(), policy.isRetryable(e, false));
+        }
+        assertFalse(policy.isRetryable(new IOException(), true));
+    }
+
+    @Test
+    public void backoffStaysUnderTheCap() {
+        RetryPolicy policy = new RetryPolicy(10, 100L, 1000L);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(policy.getDelay(1, null) < 100L);
+            assertTrue(policy.getDelay(3, null) < 400L);
+            assertTrue(policy.getDelay(10, null) < 1000L);
+            assertTrue(policy.getDelay(100, null) < 1000L); // no overflow of the shift
+            assertTrue(0L <= policy.getDelay(100, null));
+        }
+        assertEquals(0L, new RetryPolicy(4, 0L, 0L).getDelay(1, null));
+    }
+
+    @Test
+    public void retryAfterSeconds() {
+        RetryPolicy policy = new RetryPolicy(4, 0L, 0L);
+        assertEquals(5000L, policy.getRetryAfter(response(503, "5")));
+        assertEquals(5000L, policy.getDelay(1, response(503, " 5 ")));
+        assertEquals(0L, policy.getRetryAfter(response(503, "-5")));
+        assertEquals(0L, policy.getRetryAfter(response(503, "soon")));
+        assertEquals(0L, policy.getRetryAfter(response(503, null)));
+        assertEquals(0L, policy.getRetryAfter(null));
+    }
+
+    @Test
+    public void retryAfterDate() {
+        RetryPolicy policy = new RetryPolicy(4, 0L, 0L);
+        String in30s = DateUtils.formatDate(new Date(System.currentTimeMillis() + 30000L));
+        long wait = policy.getRetryAfter(response(429, in30s));
+        // HTTP dates have whole seconds
+        assertTrue(Long.toString(wait), 28000L <= wait && wait <= 30000L);
+        String past = DateUtils.formatDate(new Date(System.currentTimeMillis() - 30000L));
+        assertEquals(0L, policy.getRetryAfter(response(429, past)));
+    }
+
+    @Test
+    public void retryAfterLongerThanTheMaximumGivesUp() {
+        RetryPolicy policy = new RetryPolicy(4, 100L, 1000L);
+        policy.setMaxRetryAfter(10000L);
+        assertEquals(10000L, policy.getDelay(1, response(503, "10")));
+        assertEquals(-1L, policy.getDelay(1, response(503, "11")));
+    }
+
+    @Test
+    public void retryAfterWinsOverAShorterBackoff() {
+        RetryPolicy policy = new RetryPolicy(4, 100L, 1000L);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(2000L, policy.getDelay(1, response(429, "2")));
+        }
+    }
+}
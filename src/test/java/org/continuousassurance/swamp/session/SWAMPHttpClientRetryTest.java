@@ -0,0 +1,112 @@
+package org.continuousassurance.swamp.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.message.BasicHttpResponse;
+import org.continuousassurance.swamp.session.transport.HttpTransport;
+import org.junit.Test;
+
+/**
+ * Checks which failures {@link SWAMPHttpClient#execute(SWAMPHttpClient.Stuff, boolean)} sends again.
+ */
+public class SWAMPHttpClientRetryTest {
+    static final String URL = "https://swamp.example.org/assessment_runs";
+
+    static class Response extends BasicHttpResponse implements CloseableHttpResponse {
+        Response(int code) {
+            super(HttpVersion.HTTP_1_1, code, "");
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Fails with the given exceptions, in order, then answers 200.
+     */
+    static class FailingTransport implements HttpTransport {
+        List<IOException> failures = new ArrayList<IOException>();
+        int calls = 0;
+
+        FailingTransport(IOException... failures) {
+            for (IOException e : failures) {
+                this.failures.add(e);
+            }
+        }
+
+        @Override
+        public CloseableHttpResponse execute(HttpHost target, HttpRequestBase request, HttpClientContext context)
+                throws IOException {
+            calls++;
+            if (!failures.isEmpty()) {
+                throw failures.remove(0);
+            }
+            return new Response(200);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    static SWAMPHttpClient client(HttpTransport transport) {
+        SWAMPHttpClient client = new SWAMPHttpClient(URL);
+        client.setTransport(transport);
+        client.setRetryPolicy(new RetryPolicy(3, 0L, 0L));
+        return client;
+    }
+
+    @Test
+    public void connectFailuresAreRetriedForAnyMethod() throws IOException {
+        for (int action : new int[]{SWAMPHttpClient.Stuff.DO_GET, SWAMPHttpClient.Stuff.DO_POST}) {
+            FailingTransport transport = new FailingTransport(new ConnectException(), new ConnectException());
+            SWAMPHttpClient client = client(transport);
+            HttpResponse response = client.execute(client.new Stuff(URL, null, action), false);
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals(3, transport.calls);
+        }
+    }
+
+    @Test
+    public void aSentPostIsNotRetried() throws IOException {
+        FailingTransport transport = new FailingTransport(new SocketTimeoutException());
+        SWAMPHttpClient client = client(transport);
+        try {
+            client.execute(client.new Stuff(URL, null, SWAMPHttpClient.Stuff.DO_POST), false);
+            fail();
+        } catch (SocketTimeoutException e) {
+            assertEquals(1, transport.calls);
+        }
+        transport = new FailingTransport(new SocketTimeoutException());
+        client = client(transport);
+        client.execute(client.new Stuff(URL, null, SWAMPHttpClient.Stuff.DO_POST), true);
+        assertEquals(2, transport.calls);
+    }
+
+    @Test
+    public void attemptsAreLimited() throws IOException {
+        FailingTransport transport = new FailingTransport(new ConnectException(), new ConnectException(),
+                new ConnectException());
+        SWAMPHttpClient client = client(transport);
+        try {
+            client.execute(client.new Stuff(URL, null, SWAMPHttpClient.Stuff.DO_POST), false);
+            fail();
+        } catch (ConnectException e) {
+            assertEquals(3, transport.calls);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.continuousassurance.swamp.session.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.json.JSONObject;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks the arithmetic fast path of {@link Dates} against a {@link SimpleDateFormat}.
+ */
+public class DatesTest {
+
+    @After
+    public void restoreFormatter() {
+        Dates.setFormatter(null);
+    }
+
+    static SimpleDateFormat reference() {
+        SimpleDateFormat f = new SimpleDateFormat(Dates.SWAMP_DATE_PATTERN);
+        f.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return f;
+    }
+
+    static String format(long time) {
+        return reference().format(new Date(time));
+    }
+
+    @Test
+    public void fastPathMatchesFormatter() throws ParseException {
+        SimpleDateFormat reference = reference();
+        // every day from 1900 to 2100, at a time that changes with the day
+        long day = 24L * 60L * 60L * 1000L;
+        long start = reference.parse("1900-01-01 00:00:00").getTime();
+        long end = reference.parse("2100-12-31 00:00:00").getTime();
+        for (long time = start; time <= end; time += day + 1000L) {
+            String s = reference.format(new Date(time));
+            assertEquals(s, reference.parse(s).getTime(), Dates.parseSWAMPTime(s));
+        }
+    }
+
+    @Test
+    public void edgeCases() throws ParseException {
+        SimpleDateFormat reference = reference();
+        String[] dates = {
+                "1970-01-01 00:00:00",
+                "1969-12-31 23:59:59",
+                "1900-01-01 00:00:00",
+                "2000-02-29 12:00:00", // leap year, divisible by 400
+                "2016-02-29 23:59:59",
+                "2038-01-19 03:14:08", // past 32 bit seconds
+                "9999-12-31 23:59:59",
+        };
+        for (String s : dates) {
+            assertEquals(s, reference.parse(s).getTime(), Dates.parseSWAMPTime(s));
+            assertEquals(s, reference.parse(s).getTime(), Dates.toSWAMPTime(s));
+        }
+    }
+
+    @Test
+    public void outOfRangeFieldsAreLeftToTheFormatter() throws ParseException {
+        String[] dates = {
+                "1900-02-29 00:00:00", // not a leap year, divisible by 100
+                "2015-02-29 00:00:00",
+                "2015-04-31 00:00:00",
+                "2015-13-01 00:00:00",
+                "2015-00-10 00:00:00",
+                "2015-01-00 00:00:00",
+                "2015-01-01 24:00:00",
+                "2015-01-01 00:60:00",
+                "2015-01-01 00:00:60",
+                "1899-12-31 23:59:59",
+        };
+        for (String s : dates) {
+            assertEquals(s, Dates.NO_DATE, Dates.parseSWAMPTime(s));
+            // the lenient formatter still makes something of them, as it always did
+            assertEquals(s, reference().parse(s).getTime(), Dates.toSWAMPTime(s));
+        }
+    }
+
+    @Test
+    public void otherFormsAreLeftToTheFormatter() throws ParseException {
+        String[] dates = {
+                "2015-1-01 00:00:00",
+                "2015-01-01T00:00:00",
+                "2015-01-01 00:00:00.5",
+                "2015-01-01 00:00:0x",
+                " 2015-01-01 00:00:0",
+        };
+        for (String s : dates) {
+            assertEquals(s, Dates.NO_DATE, Dates.parseSWAMPTime(s));
+        }
+        // trailing text is ignored by the formatter
+        assertEquals(reference().parse("2015-01-01 00:00:00").getTime(), Dates.toSWAMPTime("2015-01-01 00:00:00.5"));
+    }
+
+    @Test
+    public void missingDates() {
+        assertEquals(Dates.NO_DATE, Dates.toSWAMPTime((String) null));
+        assertEquals(Dates.NO_DATE, Dates.toSWAMPTime(""));
+        assertEquals(Dates.NO_DATE, Dates.toSWAMPTime("null"));
+        assertEquals(Dates.NO_DATE, Dates.toSWAMPTime("not a date"));
+        assertNull(Dates.toSWAMPDate("not a date"));
+        assertNull(Dates.toSWAMPDate((Object) Boolean.TRUE));
+    }
+
+    @Test
+    public void jsonValues() throws ParseException {
+        long time = reference().parse("2017-06-05 04:03:02").getTime();
+        assertEquals(new Date(time), Dates.toSWAMPDate((Object) "2017-06-05 04:03:02"));
+        assertEquals(new Date(time), Dates.toSWAMPDate(JSONObject.fromObject("{\"date\":\"2017-06-05 04:03:02\"}")));
+        assertEquals(new Date(time), Dates.toSWAMPDate((Object) time));
+    }
+
+    @Test
+    public void customFormatter() throws ParseException {
+        SimpleDateFormat f = new SimpleDateFormat("dd.MM.yyyy HH:mm");
+        f.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Dates.setFormatter(f);
+        assertEquals(f.parse("05.06.2017 04:03").getTime(), Dates.toSWAMPTime("05.06.2017 04:03"));
+        // cached the second time round
+        assertEquals(f.parse("05.06.2017 04:03").getTime(), Dates.toSWAMPTime("05.06.2017 04:03"));
+        // the fast path is only for the default format
+        assertEquals(Dates.NO_DATE, Dates.toSWAMPTime("2017-06-05 04:03:02"));
+    }
+
+    @Test
+    public void concurrentParsing() throws Exception {
+        final List<String> dates = new ArrayList<String>();
+        final List<Long> times = new ArrayList<Long>();
+        SimpleDateFormat reference = reference();
+        for (int i = 0; i < 1000; i++) {
+            long time = 1000L * (1000000000L + i * 86461L);
+            dates.add(reference.format(new Date(time)));
+            times.add(time);
+            // odd forms go through the formatter and the cache
+            dates.add(reference.format(new Date(time)) + ".0");
+            times.add(time);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < 8; t++) {
+                final int offset = t * 97;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int wrong = 0;
+                        for (int round = 0; round < 20; round++) {
+                            for (int i = 0; i < dates.size(); i++) {
+                                int j = (i + offset) % dates.size();
+                                if (Dates.toSWAMPTime(dates.get(j)) != times.get(j)) {
+                                    wrong++;
+                                }
+                            }
+                        }
+                        return wrong;
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(0, result.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package org.continuousassurance.swamp.session.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+
+import org.continuousassurance.swamp.exceptions.NoJSONReturnedException;
+import org.junit.Test;
+
+/**
+ * Checks that {@link StreamingJSONDecoder} builds the same json-lib objects as {@link JSONLibDecoder}.
+ */
+public class StreamingJSONDecoderTest {
+    static final String RECORD = "{\"assessment_run_uuid\":\"8f2e9a54-1c3b-4d7e-9f60-2a1b3c4d5e6f\","
+            + "\"status\":\"Finished\",\"weakness_cnt\":42,\"file_size\":12345678901,"
+            + "\"huge\":123456789012345678901234567890,\"ratio\":0.25,"
+            + "\"is_owned\":true,\"is_restricted\":false,\"notes\":null,"
+            + "\"name\":\"a \\\"quoted\\\" \\\\ name\\/path\\n\\t\\u00e9\\u4e2d\","
+            + "\"create_date\":{\"date\":\"2017-06-05 04:03:02.000000\",\"timezone\":\"UTC\"},"
+            + "\"platform_names\":[\"Ubuntu\",\"CentOS\"],\"empty_object\":{},\"empty_array\":[],"
+            + "\"nested\":[[1,2],[3,[4,{\"five\":5}]]],\"negative\":-17}";
+
+    final StreamingJSONDecoder decoder = new StreamingJSONDecoder();
+
+    /**
+     * Hands out a character at a time, so every token crosses a buffer boundary.
+     */
+    static class TrickleReader extends FilterReader {
+        TrickleReader(String s) {
+            super(new StringReader(s));
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return super.read(cbuf, off, Math.min(len, 1));
+        }
+    }
+
+    JSON streaming(String s) throws IOException {
+        return decoder.decode(new StringReader(s));
+    }
+
+    static JSON jsonLib(String s) {
+        return JSONLibDecoder.toJSON(s);
+    }
+
+    /**
+     * Same structure, same values and the same value types.
+     */
+    static void assertSameJSON(Object expected, Object actual) {
+        if (expected instanceof JSONObject) {
+            assertTrue("not an object: " + actual, actual instanceof JSONObject);
+            JSONObject e = (JSONObject) expected;
+            JSONObject a = (JSONObject) actual;
+            assertEquals(e.keySet(), a.keySet());
+            for (Iterator<?> it = e.keys(); it.hasNext();) {
+                Object key = it.next();
+                assertSameJSON(e.get(key), a.get(key));
+            }
+        } else if (expected instanceof JSONArray) {
+            assertTrue("not an array: " + actual, actual instanceof JSONArray);
+            JSONArray e = (JSONArray) expected;
+            JSONArray a = (JSONArray) actual;
+            assertEquals(e.size(), a.size());
+            for (int i = 0; i < e.size(); i++) {
+                assertSameJSON(e.get(i), a.get(i));
+            }
+        } else {
+            assertEquals(expected, actual);
+            if (expected != null) {
+                assertEquals(String.valueOf(expected), expected.getClass(), actual.getClass());
+            }
+        }
+    }
+
+    @Test
+    public void recordMatchesJSONLib() throws IOException {
+        assertSameJSON(jsonLib(RECORD), streaming(RECORD));
+        assertSameJSON(jsonLib(RECORD), decoder.decode(new TrickleReader(RECORD)));
+        assertEquals(jsonLib(RECORD).toString(), streaming(RECORD).toString());
+    }
+
+    @Test
+    public void valueTypes() throws IOException {
+        JSONObject json = (JSONObject) streaming(RECORD);
+        assertEquals(Integer.class, json.get("weakness_cnt").getClass());
+        assertEquals(Long.class, json.get("file_size").getClass());
+        assertEquals(Double.class, json.get("ratio").getClass());
+        assertSame(JSONNull.getInstance(), json.get("notes"));
+        assertEquals("a \"quoted\" \\ name/path\n\t\u00e9\u4e2d", json.getString("name"));
+    }
+
+    /**
+     * json-lib goes through a float for some doubles (1.5E10 comes out as 1.50000005E10), this does not.
+     */
+    @Test
+    public void exponents() throws IOException {
+        JSONObject json = (JSONObject) streaming("{\"a\":1.5E10,\"b\":-2e-3,\"c\":1e400}");
+        assertEquals(1.5E10, json.get("a"));
+        assertEquals(-2e-3, json.get("b"));
+        assertEquals(new BigDecimal("1e400"), json.get("c"));
+    }
+
+    @Test
+    public void whitespace() throws IOException {
+        String s = " \r\n\t{ \"a\" :\t[ 1 ,\n2 ] ,\"b\" : { \"c\" : null } }\n";
+        assertSameJSON(jsonLib(s.trim()), streaming(s));
+    }
+
+    @Test
+    public void duplicateKeysAccumulate() throws IOException {
+        String s = "{\"k\":1,\"k\":\"two\",\"k\":[3],\"other\":true}";
+        JSONObject expected = (JSONObject) jsonLib(s);
+        JSONObject actual = (JSONObject) streaming(s);
+        assertSameJSON(expected, actual);
+        assertTrue(actual.get("k") instanceof JSONArray);
+    }
+
+    @Test
+    public void stringsThatLookLikeJSON() throws IOException {
+        String s = "{\"a\":\"[1,2]\",\"b\":\"{\\\"x\\\":1}\",\"c\":[\"[]\",\"{}\"]}";
+        assertSameJSON(jsonLib(s), streaming(s));
+    }
+
+    @Test
+    public void largeArray() throws IOException {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 2000; i++) {
+            sb.append(i == 0 ? "" : ",").append(RECORD.replace("42", Integer.toString(i)));
+        }
+        String s = sb.append("]").toString();
+        assertSameJSON(jsonLib(s), streaming(s));
+    }
+
+    @Test
+    public void forEachHandsOutElementsInOrder() throws IOException {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 100000; i++) {
+            sb.append(i == 0 ? "" : ",").append("{\"i\":").append(i).append('}');
+        }
+        final List<Object> elements = new ArrayList<Object>();
+        decoder.forEach(new StringReader(sb.append("]").toString()), new StreamingJSONDecoder.ElementHandler() {
+            @Override
+            public void handle(Object element) {
+                elements.add(element);
+            }
+        });
+        assertEquals(100000, elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            assertEquals(i, ((JSONObject) elements.get(i)).getInt("i"));
+        }
+    }
+
+    @Test
+    public void forEachOnAnObjectOrNothing() throws IOException {
+        final List<Object> elements = new ArrayList<Object>();
+        StreamingJSONDecoder.ElementHandler handler = new StreamingJSONDecoder.ElementHandler() {
+            @Override
+            public void handle(Object element) {
+                elements.add(element);
+            }
+        };
+        decoder.forEach(new StringReader(""), handler);
+        assertEquals(0, elements.size());
+        decoder.forEach(new StringReader(RECORD), handler);
+        assertEquals(1, elements.size());
+        assertSameJSON(jsonLib(RECORD), elements.get(0));
+    }
+
+    @Test
+    public void emptyBody() throws IOException {
+        assertNull(streaming(""));
+        assertNull(streaming(" \n"));
+    }
+
+    @Test
+    public void notJSON() throws IOException {
+        try {
+            streaming("Service Unavailable");
+            fail();
+        } catch (NoJSONReturnedException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void malformed() throws IOException {
+        String[] bad = {"{\"a\":1", "{\"a\" 1}", "{a:1}", "[1 2]", "{\"a\":\"open}", "[tru]", "{\"a\":\"\\u12\"}"};
+        for (String s : bad) {
+            try {
+                streaming(s);
+                fail(s);
+            } catch (JSONException e) {
+                // expected
+            }
+        }
+    }
+}
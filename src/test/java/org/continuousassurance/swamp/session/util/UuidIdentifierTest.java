@@ -0,0 +1,129 @@
+package org.continuousassurance.swamp.session.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import edu.uiuc.ncsa.security.core.Identifier;
+import edu.uiuc.ncsa.security.core.util.BasicIdentifier;
+
+import org.junit.Test;
+
+/**
+ * Checks that a {@link UuidIdentifier} can stand in for a {@link BasicIdentifier} of the same uuid.
+ */
+public class UuidIdentifierTest {
+    static final String UUID_STRING = "8f2e9a54-1c3b-4d7e-9f60-2a1b3c4d5e6f";
+
+    @Test
+    public void parsesCanonicalUuids() {
+        for (int i = 0; i < 1000; i++) {
+            UUID uuid = UUID.randomUUID();
+            UuidIdentifier id = UuidIdentifier.newID(uuid.toString());
+            assertNotNull(uuid.toString(), id);
+            assertEquals(uuid.getMostSignificantBits(), id.getMostSignificantBits());
+            assertEquals(uuid.getLeastSignificantBits(), id.getLeastSignificantBits());
+            assertEquals(uuid.toString(), id.toString());
+            assertEquals(URI.create(uuid.toString()), id.getUri());
+        }
+        assertNotNull(UuidIdentifier.newID("ffffffff-ffff-ffff-ffff-ffffffffffff"));
+        assertNotNull(UuidIdentifier.newID("00000000-0000-0000-0000-000000000000"));
+    }
+
+    @Test
+    public void rejectsOtherStrings() {
+        String[] others = {
+                null,
+                "",
+                "42",
+                "8F2E9A54-1C3B-4D7E-9F60-2A1B3C4D5E6F", // upper case
+                "8f2e9a54-1c3b-4d7e-9f60-2a1b3c4d5e6",
+                "8f2e9a54-1c3b-4d7e-9f60-2a1b3c4d5e6f0",
+                "8f2e9a541c3b-4d7e-9f60-2a1b3c4d5e6f0",
+                "8f2e9a54-1c3b-4d7e-9f60-2a1b3c4d5e6g",
+                "urn:uuid:8f2e9a54-1c3b-4d7e-9f60-2a",
+        };
+        for (String s : others) {
+            assertNull(s, UuidIdentifier.newID(s));
+        }
+        assertTrue(SWAMPIdentifiers.toIdentifier("42") instanceof BasicIdentifier);
+        assertFalse(SWAMPIdentifiers.toIdentifier("42") instanceof UuidIdentifier);
+        assertTrue(SWAMPIdentifiers.toIdentifier(UUID_STRING) instanceof UuidIdentifier);
+    }
+
+    @Test
+    public void interned() {
+        UuidIdentifier id = UuidIdentifier.newID(UUID_STRING);
+        assertSame(id, UuidIdentifier.newID(new String(UUID_STRING)));
+        assertSame(id, SWAMPIdentifiers.toIdentifier(new String(UUID_STRING)));
+    }
+
+    @Test
+    public void equalsBasicIdentifierBothWays() {
+        UuidIdentifier id = UuidIdentifier.newID(UUID_STRING);
+        BasicIdentifier fromString = new BasicIdentifier(UUID_STRING);
+        BasicIdentifier fromUri = new BasicIdentifier(URI.create(UUID_STRING));
+
+        assertTrue(id.equals(fromString));
+        assertTrue(fromString.equals(id));
+        assertTrue(id.equals(fromUri));
+        assertTrue(fromUri.equals(id));
+        assertEquals(fromString.hashCode(), id.hashCode());
+        assertEquals(fromUri.hashCode(), id.hashCode());
+        assertEquals(0, id.compareTo(fromString));
+        assertEquals(0, fromString.compareTo(id));
+    }
+
+    @Test
+    public void differentUuidsDiffer() {
+        UuidIdentifier id = UuidIdentifier.newID(UUID_STRING);
+        String other = "8f2e9a54-1c3b-4d7e-9f60-2a1b3c4d5e6e";
+        assertFalse(id.equals(UuidIdentifier.newID(other)));
+        assertFalse(id.equals(new BasicIdentifier(other)));
+        assertFalse(new BasicIdentifier(other).equals(id));
+        assertFalse(id.equals(UUID_STRING));
+        assertFalse(id.equals(null));
+        assertTrue(id.compareTo(UuidIdentifier.newID(other)) > 0);
+    }
+
+    @Test
+    public void interchangeableAsKeys() {
+        Set<Identifier> basics = new HashSet<Identifier>();
+        Map<Identifier, String> uuids = new HashMap<Identifier, String>();
+        for (int i = 0; i < 100; i++) {
+            String uuid = UUID.randomUUID().toString();
+            basics.add(new BasicIdentifier(uuid));
+            uuids.put(UuidIdentifier.newID(uuid), uuid);
+        }
+        for (Map.Entry<Identifier, String> entry : uuids.entrySet()) {
+            assertTrue(basics.contains(entry.getKey()));
+            assertEquals(entry.getValue(), uuids.get(new BasicIdentifier(entry.getValue())));
+        }
+    }
+
+    @Test
+    public void deserializesToTheInternedInstance() throws Exception {
+        UuidIdentifier id = UuidIdentifier.newID(UUID_STRING);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(id);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertSame(id, in.readObject());
+        in.close();
+    }
+}